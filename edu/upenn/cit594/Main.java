@@ -2,6 +2,7 @@ package edu.upenn.cit594;
 
 import java.io.File;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -10,6 +11,7 @@ import edu.upenn.cit594.datamanagement.ArgumentStorage;
 import edu.upenn.cit594.datamanagement.CovidCSVParser;
 import edu.upenn.cit594.datamanagement.CovidJsonParser;
 import edu.upenn.cit594.datamanagement.CovidParser;
+import edu.upenn.cit594.datamanagement.ParserOptions;
 import edu.upenn.cit594.datamanagement.PopulationParser;
 import edu.upenn.cit594.datamanagement.PropertyParser;
 import edu.upenn.cit594.logging.Logger;
@@ -22,7 +24,20 @@ public class Main {
 	/**
 	 * Immutable set of acceptable arguments  
 	 */
-	private Set<String> names = Set.of("log", "covid", "population", "properties");
+	private Set<String> names = Set.of("log", "covid", "population", "properties", "lexer", "threads", "snapshot", "watch", "pipeline", "storage", "cache", "warmup");
+	
+	/**
+	 * Arguments that configure the program instead of naming a file, with patterns of their accepted values 
+	 */
+	private Map<String, Pattern> options = Map.of(
+			"lexer", Pattern.compile("^(reader|mapped)$"),
+			"threads", Pattern.compile("^[1-9]\\d{0,3}$"),
+			"snapshot", Pattern.compile("^(true|false)$"),
+			"watch", Pattern.compile("^[1-9]\\d{0,4}$"),
+			"pipeline", Pattern.compile("^(true|false)$"),
+			"storage", Pattern.compile("^(heap|offheap)$"),
+			"cache", Pattern.compile("^[1-9]\\d{0,5}$"),
+			"warmup", Pattern.compile("^(zips|all)$"));
 	
 	/**
 	 * Map to store provided arguments 
@@ -61,8 +76,9 @@ public class Main {
 				String name = matcher.group("name");
 				String value = matcher.group("value");
 				
-				// error occurs when type does not exist in set, present in the map of passed arguments or file can not be read 
-				if(arguments.containsKey(name) || !names.contains(name) || !fileReachable(name, value)) {
+				// error occurs when type does not exist in set, present in the map of passed arguments, file can not be read
+				// or option value is not accepted 
+				if(arguments.containsKey(name) || !names.contains(name) || !argumentValid(name, value)) {
 					UserInterface.displayError("Invalid arguments names provided. Make sure they are valid and not repeated");
 					return;
 				}
@@ -90,26 +106,59 @@ public class Main {
 		
 		String covidFilemame = arguments.get("covid");
 		
+		// CSV files are read through memory-mapped lexer if requested, by single thread by default 
+		ParserOptions options = new ParserOptions();
+		options.setMapped("mapped".equals(arguments.get("lexer")));
+		if(arguments.containsKey("threads")) options.setThreads(Integer.parseInt(arguments.get("threads")));
+		
+		// byte ranges of a property file can only be lexed from a mapped file, the pipeline reads it whole 
+		if("reader".equals(arguments.get("lexer")) && options.getThreads() > 1 && arguments.containsKey("properties")
+				&& !"true".equals(arguments.get("pipeline"))) {
+			logger.log("--lexer=reader does not apply to the property file, it is parsed by " + options.getThreads() + " threads through the mapped lexer");
+		}
+		options.setSnapshot("true".equals(arguments.get("snapshot")));
+		options.setPipeline("true".equals(arguments.get("pipeline")));
+		
+		// a followed covid file is first read only up to its last complete record 
+		options.setFollow(arguments.containsKey("watch"));
+		
+		// property data may be kept outside of the heap for the rest of the session 
+		options.setOffHeap("offheap".equals(arguments.get("storage")));
+		
 		// instantiate covid parser. If filename is not provided, then set it to null/
 		// Otherwise instantiate type of parser based on isJson variable 
 		CovidParser covidParser = covidFilemame == null ? null :
-			(isJson ? new CovidJsonParser(covidFilemame) : new CovidCSVParser(covidFilemame));
+			(isJson ? new CovidJsonParser(covidFilemame, options) : new CovidCSVParser(covidFilemame, options));
 		
 		// set population parser to new instance or null (it depends if population type is present in map) 
 		PopulationParser populationParser = arguments.containsKey("population")
-				? new PopulationParser(arguments.get("population")) : null;
+				? new PopulationParser(arguments.get("population"), options) : null;
 		
 		// set property parser to new instance or null 
 		PropertyParser propertyParser = arguments.containsKey("properties")
-				? new PropertyParser(arguments.get("properties")) : null;
+				? new PropertyParser(arguments.get("properties"), options) : null;
 		Processor processor = new Processor(covidParser, populationParser, propertyParser, new ArgumentStorage(args));
+		
+		// scans that are not answered by precomputed aggregates use the same number of threads as parsers 
+		processor.setThreads(options.getThreads());
+		
+		// past results are kept within given number of megabytes, an eighth of the heap by default 
+		if(arguments.containsKey("cache")) processor.setCacheCapacity(Long.parseLong(arguments.get("cache")) << 20);
+		
+		// results of every zip code, and of every date if requested, are computed in the background 
+		if(arguments.containsKey("warmup")) processor.warmUp("all".equals(arguments.get("warmup")));
+		
+		// covid file is checked for appended records every given number of seconds 
+		if(arguments.containsKey("watch")) processor.watchCovidData(Long.parseLong(arguments.get("watch")));
 		UserInterface ui = new UserInterface(processor);
 		ui.start();
+		logger.log(processor.getCacheStatistics());
 	}
 
 	
 	/**
-	 * If covid file is provided, then checks if it has valid extension. 
+	 * If covid file is provided, then checks if it has valid extension. Compressed files are checked
+	 * by the extension before .gz 
 	 * @return true if file has valid extension or does not exist. False otherwise 
 	 */
 	private boolean covidFileValidOrNotExist() {
@@ -117,6 +166,7 @@ public class Main {
 
 		// this function is sanity check only. If file is not provided, then it should return true anyway 
 		if(filename == null) return true;
+		if(filename.regionMatches(true, filename.length() - 3, ".gz", 0, 3)) filename = filename.substring(0, filename.length() - 3);
 		int index = filename.lastIndexOf('.');
 
 		// -1 means no extension is provided at all
@@ -130,6 +180,19 @@ public class Main {
 		return false;
 	}
 
+	/**
+	 * Checks if provided argument is valid. Options are matched against their accepted values,
+	 * all other arguments should be reachable files 
+	 * @param name name of the argument 
+	 * @param value value of the argument 
+	 * @return true if argument can be processed. False otherwise 
+	 */
+	private boolean argumentValid(String name, String value) {
+		Pattern option = options.get(name);
+		if(option == null) return fileReachable(name, value);
+		return option.matcher(value).find();
+	}
+
 	/**
 	 * Checks if provided file can be read. If file is of log type, then checks if it exists and can be written 
 	 * @param type type of file 
@@ -1,31 +1,21 @@
 package edu.upenn.cit594.datamanagement;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.Reader;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 
 /**
  * {@code CSVReader} provides a stateful API for streaming individual CSV rows
  * as arrays of strings that have been read from a given CSV file.
+ * Rows can also be read without creating strings through {@code nextRow}, in which case
+ * fields are accessed as ranges of the internal char buffer.
  *
  * @author andrii podhornyi 
  */
-public class CSVLexer {
+public class CSVLexer implements Closeable, CSVRow {
 	private final Reader reader;
 
-	
-	/**
-	 * Variable to store the number of fields in the table. Is updated only once
-	 * after first row is processed 
-	 */
-	private int numOfFields = 4;
-	
-	/**
-	 * Indicates if the first row was processed or not. If true, then 
-	 * {@code checkNumOfFields} will always return true.
-	 */
-	private boolean isFirstRow = true;
 
 	/**
 	 * Indicates the current state of the reader.
@@ -42,11 +32,88 @@ public class CSVLexer {
 	}
 
 	private State state = State.BOF;
+	
+	/**
+	 * Indexes of fields that should be returned by {@code readRow}. Null if all fields are wanted 
+	 */
+	private boolean[] wanted;
+	
+	/**
+	 * True if the field that is currently read is wanted 
+	 */
+	private boolean keep = true;
+	
+	/**
+	 * Chars of wanted fields of the current row, stored one after another 
+	 */
+	private char[] chars = new char[256];
+	private int length;
+	
+	/**
+	 * Start and end of each field of the current row in {@code chars}. Both are -1 for fields that are not wanted 
+	 */
+	private int[] starts = new int[16], ends = new int[16];
+	
+	/**
+	 * Number of fields in the current row and start of the field that is currently read 
+	 */
+	private int count, fieldStart;
 
 	public CSVLexer(Reader reader) {
 		this.reader = reader;
 	}
 
+	/**
+	 * Constructor for subclasses that supply characters by overriding {@code read}
+	 */
+	protected CSVLexer() {
+		this.reader = null;
+	}
+
+	/**
+	 * Returns the next char of the input. Subclasses may override this method to feed the
+	 * state machine from a different source.
+	 * @return next char as int, or -1 when the end of input is reached
+	 * @throws IOException may be thrown by internal reader
+	 */
+	protected int read() throws IOException {
+		return reader.read();
+	}
+
+	/**
+	 * Restricts the fields stored by the lexer to the given columns. Other fields are scanned
+	 * past without being stored and are returned as null, so indexes of wanted fields do not change.
+	 * @param indexes indexes of wanted columns, none to want all columns 
+	 */
+	public void setFields(int... indexes) {
+		if(indexes.length == 0) {
+			wanted = null;
+			return;
+		}
+		int size = 0;
+		for(int index : indexes) size = Math.max(size, index + 1);
+		wanted = new boolean[size];
+		for(int index : indexes) wanted[index] = true;
+	}
+	
+	/**
+	 * Checks if field with given index should be stored 
+	 * @param index index of the field in the row 
+	 * @return true if field is wanted 
+	 */
+	private boolean isWanted(int index) {
+		return wanted == null || (index < wanted.length && wanted[index]);
+	}
+
+	/**
+	 * Closes the internal reader 
+	 * @throws IOException may be thrown by internal reader
+	 */
+	@Override
+	public void close() throws IOException {
+		if(reader != null) reader.close();
+	}
+
 	/**
 	 * This method uses the class's {@code CharacterReader} to read in just enough
 	 * characters to process a single valid CSV row, represented as an array of
@@ -63,62 +130,113 @@ public class CSVLexer {
 	 */
 	public String[] readRow() throws IOException {
 
-		if(state == State.EOF) return null;
-		
-		// represents current row and stores retrieved fields 
-		ArrayList<String> fields = new ArrayList<>(numOfFields);
+		if(!nextRow()) return null;
+		String[] fields = new String[count];
+		for(int i = 0; i < count; i++) fields[i] = getField(i);
+		return fields;
+	}
+
+	/**
+	 * Reads the next row into the internal buffer without creating strings. Fields of the row
+	 * stay available until the next call.
+	 * @return true if row was read, false when there are no more rows left to be read.
+	 * @throws IOException when the underlying reader encountered an error
+	 */
+	public boolean nextRow() throws IOException {
+
+		if(state == State.EOF) return false;
 		
 		// retrieves fields from the file and adds them to the row.
-		processRow(fields);
+		processRow();
 		
-		// sets the number of required fields in each row after first row is processed 
-		int size = fields.size();
-		if(isFirstRow) {
-			numOfFields = size;
-			isFirstRow = false;
-		}
-		
-		// returns null if the last line of the file is single EOF
-		if(state == State.EOF && size == 0) return null;
-		return fields.stream().toArray(String[] :: new);
+		// returns false if the last line of the file is single EOF
+		return !(state == State.EOF && count == 0);
+	}
+
+	/**
+	 * Returns number of fields in the current row 
+	 */
+	public int getFieldCount() {
+		return count;
+	}
+
+	/**
+	 * Checks if the current row has given field and the field was stored 
+	 * @param index index of the field 
+	 * @return true if field is available 
+	 */
+	public boolean hasField(int index) {
+		return index >= 0 && index < count && starts[index] >= 0;
+	}
+
+	/**
+	 * Returns internal buffer that holds the chars of the current row. Should not be modified 
+	 */
+	public char[] getChars() {
+		return chars;
+	}
+
+	/**
+	 * Returns offset of the first char of given field in the internal buffer 
+	 * @param index index of the field, should be available 
+	 */
+	public int getFieldStart(int index) {
+		return starts[index];
+	}
+
+	/**
+	 * Returns offset right after the last char of given field in the internal buffer 
+	 * @param index index of the field, should be available 
+	 */
+	public int getFieldEnd(int index) {
+		return ends[index];
+	}
+
+	/**
+	 * Creates string of given field of the current row 
+	 * @param index index of the field 
+	 * @return value of the field, or null if it is not available 
+	 */
+	public String getField(int index) {
+		if(!hasField(index)) return null;
+		return new String(chars, starts[index], ends[index] - starts[index]);
 	}
 
 
 	/**
 	 * Reads current line of the file until EOF or LF is reached, or Exception is thrown.
 	 * Adds new fields to the current row. If false is returned, then grammar error occurred. 
-	 * @param fields Linked list that stores already added fields. Represents a CSV row.
 	 * @return true if no invalid input in the current row. False otherwise.
 	 * @throws IOException may be triggered by internal reader.
 	 */
-	private boolean processRow(ArrayList<String> fields) throws IOException {
+	private boolean processRow() throws IOException {
 
 		int c = 0;
 		boolean status = false;
-		StringBuilder sb = new StringBuilder();
+		length = count = fieldStart = 0;
+		keep = isWanted(0);
 		while(true) {
-			c = reader.read();
+			c = read();
 			switch(c) {
 			case -1:
-				status = checkForEOF(fields, sb);
+				status = checkForEOF();
 				if(status) return true;
 				break;
 			case ',':
-				status = processComma(fields, sb);
-				if(state != State.INSIDE_DQUOTE) sb = new StringBuilder();
+				status = processComma();
 				break;
 			case 13:
-				status = processCR(fields, sb);
+				status = processCR();
 				break;
 			case 10:
-				status = processLF(fields, sb);
+				status = processLF();
 				if(status && state == State.LF) return true;
 				break;
 			case '"':
-				status = processDqoute(sb);
+				status = processDqoute();
 				break;
 			default:
-				status = processText(c, sb);
+				status = processText(c);
 			}
 			if(!status) {
 				return false;
@@ -127,23 +245,48 @@ public class CSVLexer {
 	}
 
 
+	/**
+	 * Appends char to the current field if the field is wanted 
+	 * @param c char to be appended 
+	 */
+	private void append(char c) {
+		if(!keep) return;
+		if(length == chars.length) chars = Arrays.copyOf(chars, length * 2);
+		chars[length++] = c;
+	}
+	
+	/**
+	 * Ends the current field and adds it to the row. Fields that are not wanted are marked as unavailable 
+	 */
+	private void addField() {
+		if(count == starts.length) {
+			starts = Arrays.copyOf(starts, count * 2);
+			ends = Arrays.copyOf(ends, count * 2);
+		}
+		starts[count] = keep ? fieldStart : -1;
+		ends[count] = keep ? length : -1;
+		count++;
+		fieldStart = length;
+		keep = isWanted(count);
+	}
+
+
 	/**
 	 * Appends char to the current field if not preceded with CR or OUTSIDE_DQUOTE. 
 	 * @param c current char to be added to the field.
-	 * @param sb instance of {@code StringBuilder} class that hold the data of the current field.
 	 * @return false if preceded by CR or OUTSIDE_DQUOTE. True otherwise.
 	 */
-	private boolean processText(int c, StringBuilder sb) {
+	private boolean processText(int c) {
 
 		switch (state) {
 		case CR:
 		case OUTSIDE_DQUOTE:
 			return false;
 		case INSIDE_DQUOTE:
-			sb.append((char)c);
+			append((char)c);
 			break;
 		default:
-			sb.append((char)c);
+			append((char)c);
 			state = State.TEXT;
 		}
 		return true;
@@ -154,10 +297,9 @@ public class CSVLexer {
 	 * If appears at the beginning of the new field, then considered enclosing Quote and changes State
 	 * to the INSIDE_DQOUTE. If appears twice consecutively with State = INSIDE_DQUOTE, then new '"' is added to the field.
 	 * Returns false if not the first char in the field.
-	 * @param sb instance of {@code StringBuilder} class that hold the data of the current field.
 	 * @return false only if preceded by CR or TEXT (Not inside DQUOTE). True otherwise 
 	 */
-	private boolean processDqoute(StringBuilder sb) {
+	private boolean processDqoute() {
 
 		switch (state) {
 		case NEW_FIELD:
@@ -170,7 +312,7 @@ public class CSVLexer {
 			break; 
 		case OUTSIDE_DQUOTE:
 			state = State.INSIDE_DQUOTE;
-			sb.append('"');
+			append('"');
 			break;
 		default: return false;
 
@@ -183,18 +325,16 @@ public class CSVLexer {
 	 * Adds \n to the field if it is enclosed in DQUOTE. Otherwise checks the number of fields
 	 * currently present in the row. New field is only appended if LF not preceded by CR and enough fields are already
 	 * present in the current row. If preceded by CR, then simply updates the State to LF and returns. 
-	 * @param fields Linked list that stores already added fields. Represents a CSV row.
-	 * @param sb instance of {@code StringBuilder} class that hold the data of the current field.
 	 * @return false only if the number of fields including current is less then in the first row of the file. True otherwise.
 	 */
-	private boolean processLF(List<String> fields, StringBuilder sb) {
+	private boolean processLF() {
 
 		switch (state) {
 		case INSIDE_DQUOTE:
-			sb.append('\n');
+			append('\n');
 			break;
 		default:
-			fields.add(sb.toString());
+			addField();
 		case CR:
 			state = State.LF;
 			break;
@@ -206,21 +346,19 @@ public class CSVLexer {
 	/**
 	 * Adds \r to the field if it is enclosed in DQUOTE. Otherwise checks the number of fields in the current row.
 	 * In case of success adds new field and changes the state to CR.
-	 * @param fields Linked list that stores already added fields. Represents a CSV row.
-	 * @param sb instance of {@code StringBuilder} class that hold the data of the current field.
 	 * @return false only if preceded by another CR or not enough fields are in the current row. True otherwise.
 	 */
-	private boolean processCR(List<String> fields, StringBuilder sb) {
+	private boolean processCR() {
 
 		switch (state) {
 		case INSIDE_DQUOTE:
-			sb.append('\r');
+			append('\r');
 			break;
 		case CR:
 			return false;
 		default:
 			state = State.CR;
-			fields.add(sb.toString());
+			addField();
 			break;
 		}
 		return true;
@@ -230,19 +368,17 @@ public class CSVLexer {
 	/**
 	 * adds ',' to the current field if enclosed in the DQUOTE. Otherwise checks the number of fields
 	 * present in the current row. In case of success adds a new field to the row and changes State to NEW_FIELD.
- 	 * @param fields Linked list that stores already added fields. Represents a CSV row.
-	 * @param sb instance of {@code StringBuilder} class that hold the data of the current field.
 	 * @return false only if preceded by CR or wrong number of fields is already present in a row. True otherwise.
 	 */
-	private boolean processComma(List<String> fields, StringBuilder sb) {
+	private boolean processComma() {
 
 		switch(state) {
 		case INSIDE_DQUOTE:
-			sb.append(',');
+			append(',');
 			break;
 		case CR: return false;
 		default:
-			fields.add(sb.toString());
+			addField();
 			state = State.NEW_FIELD;
 			break;
 		}
@@ -253,17 +389,15 @@ public class CSVLexer {
 	/**
 	 * Changes internal State to EOF. Adds field to the row only if not preceded by LF.
 	 * Returns false if preceded by CR / BOF.
- 	 * @param fields Linked list that stores already added fields. Represents a CSV row.
-	 * @param sb instance of {@code StringBuilder} class that hold the data of the current field.
 	 * @return false if preceded with CR/BOF or occurred inside DQUOTE. True otherwise. 
 	 */
-	private boolean checkForEOF(List<String> fields, StringBuilder sb) {
+	private boolean checkForEOF() {
 
 		switch(state) {
 		case NEW_FIELD:
 		case TEXT:
 		case OUTSIDE_DQUOTE:
-			fields.add(sb.toString());
+			addField();
 		case LF:
 			state = State.EOF;
 			break;
@@ -0,0 +1,34 @@
+package edu.upenn.cit594.datamanagement;
+
+/**
+ * Fields of a single CSV row as ranges of a char buffer. Implemented by {@code CSVLexer} for its
+ * current row and by {@code RowBatch} for rows handed from the lexer to other threads
+ * @author andrii podhornyi
+ *
+ */
+public interface CSVRow {
+
+	/**
+	 * Checks if the row has given field and the field was stored
+	 * @param index index of the field
+	 * @return true if field is available
+	 */
+	boolean hasField(int index);
+
+	/**
+	 * Returns the buffer that holds the chars of the row. Should not be modified
+	 */
+	char[] getChars();
+
+	/**
+	 * Returns offset of the first char of given field in the buffer
+	 * @param index index of the field, should be available
+	 */
+	int getFieldStart(int index);
+
+	/**
+	 * Returns offset right after the last char of given field in the buffer
+	 * @param index index of the field, should be available
+	 */
+	int getFieldEnd(int index);
+}
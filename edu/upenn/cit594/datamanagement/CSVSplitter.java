@@ -0,0 +1,163 @@
+package edu.upenn.cit594.datamanagement;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Splits CSV files into byte ranges that start and end on row boundaries, so that each range
+ * can be lexed independently. Newlines enclosed in DQUOTE are not treated as boundaries.
+ * The in-quote state at a split point is derived from the parity of '"' chars before it, which
+ * holds for every correctly quoted file.
+ * @author andrii podhornyi
+ *
+ */
+class CSVSplitter {
+
+	/**
+	 * Size of a single mapped window used for scanning
+	 */
+	private static final long WINDOW_SIZE = 1L << 26;
+
+	/**
+	 * Ranges smaller than this are not split any further
+	 */
+	private static final long MIN_RANGE = 1L << 20;
+
+	private CSVSplitter() {}
+
+	/**
+	 * Splits given part of the file into at most {@code parts} ranges. Quote parity of each nominal
+	 * range is computed on the executor, then every split point is moved forward to the next row boundary.
+	 * @param channel open channel of the file
+	 * @param start offset of the first row to split, should be a row boundary
+	 * @param end offset right after the last byte to split
+	 * @param parts requested number of ranges
+	 * @param executor executor for parity scans
+	 * @return sorted offsets of boundaries, first is {@code start} and last is {@code end}
+	 * @throws IOException may be thrown by internal channel
+	 */
+	static long[] split(FileChannel channel, long start, long end, int parts, ExecutorService executor) throws IOException {
+		long length = end - start;
+		parts = (int) Math.min(parts, Math.max(1, length / MIN_RANGE));
+		if(parts < 2) return new long[] {start, end};
+
+		// nominal split points, evenly spaced
+		long[] nominal = new long[parts + 1];
+		for(int i = 0; i <= parts; i++) nominal[i] = start + length * i / parts;
+
+		// quote parity of every nominal range, independent of each other
+		List<Callable<Boolean>> tasks = new ArrayList<>(parts);
+		for(int i = 0; i < parts; i++) {
+			long from = nominal[i], to = nominal[i + 1];
+			tasks.add(() -> oddQuotes(channel, from, to));
+		}
+		boolean[] parity = new boolean[parts];
+		int index = 0;
+		for(Future<Boolean> result : invokeAll(executor, tasks)) parity[index++] = get(result);
+
+		// move each split point to the end of the row it falls into
+		long[] bounds = new long[parts + 1];
+		bounds[0] = start;
+		int count = 1;
+		boolean inQuote = false;
+		for(int i = 1; i < parts; i++) {
+			inQuote ^= parity[i - 1];
+			long boundary = rowEnd(channel, nominal[i], end, inQuote);
+
+			// rows longer than a range collapse neighbouring split points
+			if(boundary > bounds[count - 1] && boundary < end) bounds[count++] = boundary;
+		}
+		bounds[count++] = end;
+		return Arrays.copyOf(bounds, count);
+	}
+
+	/**
+	 * Finds the end of the row that contains given offset
+	 * @param channel open channel of the file
+	 * @param from offset to start scanning at
+	 * @param end offset at which scanning stops
+	 * @param inQuote true if {@code from} is inside DQUOTE
+	 * @return offset right after the first LF outside DQUOTE, or {@code end} if there is none
+	 * @throws IOException may be thrown by internal channel
+	 */
+	static long rowEnd(FileChannel channel, long from, long end, boolean inQuote) throws IOException {
+		long position = from;
+		while(position < end) {
+			long size = Math.min(WINDOW_SIZE, end - position);
+			MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+			for(int i = 0; i < size; i++) {
+				byte b = window.get(i);
+				if(b == '"') inQuote = !inQuote;
+				else if(b == '\n' && !inQuote) return position + i + 1;
+			}
+			position += size;
+		}
+		return end;
+	}
+
+	/**
+	 * Checks if given range contains odd number of '"' chars
+	 * @param channel open channel of the file
+	 * @param from offset of the first byte
+	 * @param to offset right after the last byte
+	 * @return true if number of DQUOTE chars is odd
+	 * @throws IOException may be thrown by internal channel
+	 */
+	private static boolean oddQuotes(FileChannel channel, long from, long to) throws IOException {
+		boolean odd = false;
+		long position = from;
+		while(position < to) {
+			long size = Math.min(WINDOW_SIZE, to - position);
+			MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+			for(int i = 0; i < size; i++) {
+				if(window.get(i) == '"') odd = !odd;
+			}
+			position += size;
+		}
+		return odd;
+	}
+
+	/**
+	 * Runs all tasks on the executor, restoring interrupt status if waiting is interrupted
+	 * @param executor executor to run on
+	 * @param tasks tasks to run
+	 * @return futures in the order of tasks
+	 * @throws IOException if waiting was interrupted
+	 */
+	static <T> List<Future<T>> invokeAll(ExecutorService executor, List<Callable<T>> tasks) throws IOException {
+		try {
+			return executor.invokeAll(tasks);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while reading file", e);
+		}
+	}
+
+	/**
+	 * Returns result of a completed task, unwrapping IOException thrown by it
+	 * @param result completed future
+	 * @return value of the task
+	 * @throws IOException thrown by the task
+	 */
+	static <T> T get(Future<T> result) throws IOException {
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while reading file", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException) throw (IOException) cause;
+			if(cause instanceof RuntimeException) throw (RuntimeException) cause;
+			throw new IOException(cause);
+		}
+	}
+}
@@ -1,16 +1,14 @@
 package edu.upenn.cit594.datamanagement;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.LinkedList;
+import java.io.InputStream;
 import java.util.List;
 
-import edu.upenn.cit594.util.CovidData;
+import edu.upenn.cit594.util.CovidStore;
 
 
 /**
- * Reads Covid file into List of CovidData objects 
+ * Reads Covid file into a store of covid records 
  * @author andrii podhornyi 
  *
  */
@@ -20,65 +18,123 @@ public class CovidCSVParser extends CovidParser {
 	 * Required fields indicators 
 	 */
 	private int dateField, zipField, partialField, fullField;
+	
+	/**
+	 * True once indexes of required fields were read from the header 
+	 */
+	private boolean hasHeader;
 
 	public CovidCSVParser(String filename) {
 		super(filename);
 	}
+	
+	public CovidCSVParser(String filename, ParserOptions options) {
+		super(filename, options);
+	}
 
 	/**
-	 * Parses provided file line by line. Creates {@code CovidData} object for each valid row.
+	 * Parses provided file line by line. Adds record to the store for each valid row.
 	 * Rows are considered valid if follow zip code ^\\d{5}$ pattern and YYYY-MM-DD hh:mm:ss timestamp pattern 
 	 * All other fields default to 0 on cast failure 
-	 * @return List of valid CovidData objects  
+	 * @return store of valid records  
 	 * @throws IOException may be thrown by internal reader
 	 */
 	@Override
-	public List<CovidData> getCovidData() throws IOException {
+	protected CovidStore parseCovidData(long start, long end) throws IOException {
 		
-		logger.log(filename);
+		CovidStore data = new CovidStore();
 		
-		LinkedList<CovidData> data = new LinkedList<>();
-		try(FileReader fr = new FileReader(filename); BufferedReader br = new BufferedReader(fr)){
-			
-			// CSVLexer returns formatted rows line by line 
-			CSVLexer reader = new CSVLexer(br);
+		// ranges after the beginning of the file need indexes from the header 
+		if(start > 0 && !hasHeader) {
+			try(CSVLexer reader = LexerFactory.open(filename, options.isMapped(), 0, end)){
+				setFieldsIndexes(reader.readRow());
+			}
+		}
+		
+		if(options.isPipeline()) {
+			List<CovidStore> batches = new IngestPipeline(filename, start, end, options.getThreads()).run(header -> {
+				setFieldsIndexes(header);
+				return new int[] { zipField, dateField, partialField, fullField };
+			}, batch -> {
+				CovidStore rows = new CovidStore(batch.size());
+				for(int i = 0; i < batch.size(); i++) {
+					batch.select(i);
+					addRow(batch, rows);
+				}
+				return rows;
+			});
+			for(CovidStore rows : batches) data.addAll(rows);
+			data.trim();
+			return data;
+		}
+		
+		// CSVLexer returns formatted rows line by line 
+		try(CSVLexer reader = LexerFactory.open(filename, options.isMapped(), start, end)){
 			
 			// Since first row is header, then indexes of required fields should be extracted 
-			setFieldsIndexes(reader.readRow());
-			String[] fields;
+			if(start == 0) setFieldsIndexes(reader.readRow());
 			
-			// Lexer returns null when EOF reached 
-			while((fields = reader.readRow()) != null) {
-				int zipCode = 0, partiallyVac = 0, fullyVac = 0;
-				
-				// matcher is pre-compiled and therefore is reset with a new string every time 
-				if(zipMatcher.reset(fields[zipField]).find())
-					zipCode = Integer.parseInt(fields[zipField]);
-				else continue;
-				
-				// lines with invalid timestamps are ignored 
-				if(!dateMatcher.reset(fields[dateField]).find()) continue;
-				
-				// cats given fields to ints. Defaults to 0 on failure 
-				partiallyVac = castInt(fields[partialField]); 
-				fullyVac = castInt(fields[fullField]);
-				data.add(new CovidData(zipCode, fields[dateField].split(" ")[0], partiallyVac, fullyVac));
-			}
+			// only required fields are built by the lexer 
+			reader.setFields(zipField, dateField, partialField, fullField);
+			
+			// Lexer returns false when EOF reached. Fields are decoded from the lexer's buffer 
+			while(reader.nextRow()) addRow(reader, data);
 		}
+		data.trim();
 		return data;
 	}
 	
 	/**
-	 * Helper function to cast given string to integer 
-	 * @param value String to cast 
-	 * @return casted int on success, 0 on failure 
+	 * Adds the row to the store if its zip code and timestamp are valid 
+	 * @param row row holding required fields 
+	 * @param data store to add the row to 
 	 */
-	private int castInt(String value) {
-		try {
-			return Integer.parseInt(value);
-		} catch (NumberFormatException e) {
-			return 0;
+	private void addRow(CSVRow row, CovidStore data) {
+		char[] chars = row.getChars();
+		
+		// zip code should be exactly 5 digits 
+		if(!row.hasField(zipField) || !row.hasField(dateField)) return;
+		int from = row.getFieldStart(zipField);
+		if(!FieldDecoder.isZip(chars, from, row.getFieldEnd(zipField))) return;
+		int zipCode = FieldDecoder.parseZip(chars, from);
+		
+		// lines with invalid timestamps are ignored 
+		from = row.getFieldStart(dateField);
+		if(!FieldDecoder.isTimestamp(chars, from, row.getFieldEnd(dateField))) return;
+		
+		// casts given fields to ints. Defaults to 0 on failure 
+		int partiallyVac = castInt(row, partialField); 
+		int fullyVac = castInt(row, fullField);
+		data.add(zipCode, FieldDecoder.parseDateKey(chars, from), partiallyVac, fullyVac);
+	}
+	
+	/**
+	 * Rows end with CR or LF that is not enclosed in double quotes. Range starts right after a row,
+	 * so quotes are balanced at its beginning 
+	 */
+	@Override
+	protected long lastRecordEnd(InputStream in) throws IOException {
+		boolean inQuote = false;
+		long position = 0, end = 0;
+		int c;
+		while((c = in.read()) != -1) {
+			position++;
+			if(c == '"') inQuote = !inQuote;
+			else if(!inQuote && (c == '\n' || c == '\r')) end = position;
 		}
+		return end;
+	}
+	
+	/**
+	 * Helper function to cast given field to integer 
+	 * @param reader row holding the field 
+	 * @param field index of the field to cast 
+	 * @return casted int on success, 0 on failure 
+	 */
+	private int castInt(CSVRow reader, int field) {
+		if(!reader.hasField(field)) return 0;
+		long value = FieldDecoder.parseInt(reader.getChars(), reader.getFieldStart(field), reader.getFieldEnd(field));
+		return value == FieldDecoder.INVALID ? 0 : (int) value;
 	}
 
 
@@ -90,6 +146,7 @@ public class CovidCSVParser extends CovidParser {
 		
 		// ignore empty files 
 		if(data == null) return;
+		hasHeader = true;
 		int size = data.length;
 		for(int i = 0; i < size; i++) {
 			
@@ -1,20 +1,14 @@
 package edu.upenn.cit594.datamanagement;
 
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.LinkedList;
-import java.util.List;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
-
-import edu.upenn.cit594.util.CovidData;
+import edu.upenn.cit594.util.CovidStore;
 
 /**
- * Parser for Covid files with JSON extension 
- * @author andrii podhornyi 
+ * Parser for Covid files with JSON extension
+ * @author andrii podhornyi
  *
  */
 public class CovidJsonParser extends CovidParser {
@@ -23,63 +17,67 @@ public class CovidJsonParser extends CovidParser {
 		super(filename);
 	}
 
+	public CovidJsonParser(String filename, ParserOptions options) {
+		super(filename, options);
+	}
+
+	/**
+	 * Streams objects of the file one by one and adds record to the store for each valid one.
+	 * Only required fields are extracted, the document is never held in memory as a whole
+	 * @param start offset of the first byte to parse 
+	 * @param end offset right after the last byte to parse 
+	 * @return store of valid records
+	 * @throws IOException may be thrown by internal reader or if document is malformed
+	 */
 	@Override
-	public List<CovidData> getCovidData() throws IOException, ParseException {
-		
-		logger.log(filename);
-		
-		LinkedList<CovidData> data = new LinkedList<>();
-		JSONParser parser = new JSONParser();
-		
-		try(FileReader fr = new FileReader(filename)){
-			
-			// parse file to JSONarray and iterate over it 
-			for(Object obj : (JSONArray) parser.parse(fr)) {
-				
-				// Each object should be casted to JSONObject prior to use 
-				JSONObject values = (JSONObject) obj;
-				Long zip;
-				Integer partiallyVac, fullyVac;
-				
-				// If value is missing or not 5 chars long, then ignore entire object 
-				try {
-					zip = (Long) values.get("zip_code");
-					if(zip == null) continue;
-				} catch (Exception e) {continue;} 
-				
-				if(!zipMatcher.reset(zip.toString()).find()) continue;
-				
-				// If timestamp does not follow defined pattern, ignore entire field 
-				String date;
-				try {
-					date = (String) values.get("etl_timestamp");
-					if(date == null) continue;
-				} catch (Exception e) {continue;}
-				
-				if(!dateMatcher.reset(date).find()) continue;
-				
-				// these values are defaulted to 0 on cast failure 
-				partiallyVac = castInt(values.get("partially_vaccinated"));
-				fullyVac = castInt(values.get("fully_vaccinated"));
-				data.add(new CovidData(zip.intValue(), date.split(" ")[0], partiallyVac, fullyVac));
-			} 
+	protected CovidStore parseCovidData(long start, long end) throws IOException {
+
+		CovidStore data = new CovidStore();
+
+		try(CovidJsonReader reader = new CovidJsonReader(new InputStreamReader(LexerFactory.openStream(filename, start, end)))){
+
+			// reader returns objects one by one until the end of the document
+			while(reader.next()) {
+
+				// If value is missing, not an integer or not 5 digits long, then ignore entire object
+				if(!reader.hasZipCode()) continue;
+				long zip = reader.getZipCode();
+				if(zip < 10000 || zip > 99999) continue;
+
+				// If timestamp does not follow defined pattern, ignore entire field
+				String date = reader.getTimestamp();
+				if(date == null || !FieldDecoder.isTimestamp(date)) continue;
+
+				// these values are defaulted to 0 by the reader if they are not integers
+				data.add((int) zip, CovidStore.dateKey(date), reader.getPartiallyVaccinated(), reader.getFullyVaccinated());
+			}
 		}
-		
+		data.trim();
+
 		return data;
 	}
-	
+
 	/**
-	 * Casts provided Object to int.
-	 * @param value Object to cast 
-	 * @return casted value on success, 0 on failure 
+	 * Records are top-level objects, either array elements or JSON Lines. Range starts right after
+	 * an object, so it is outside of any string and object at its beginning
 	 */
-	private int castInt(Object value) {
-		if(value == null) return 0;
-		try {
-			Long castedValue = (Long) value;
-			return castedValue.intValue();
-		} catch (Exception e) {
-			return 0;
+	@Override
+	protected long lastRecordEnd(InputStream in) throws IOException {
+		boolean inString = false, escaped = false;
+		int depth = 0;
+		long position = 0, end = 0;
+		int c;
+		while((c = in.read()) != -1) {
+			position++;
+			if(inString) {
+				if(escaped) escaped = false;
+				else if(c == '\\') escaped = true;
+				else if(c == '"') inString = false;
+			}
+			else if(c == '"') inString = true;
+			else if(c == '{') depth++;
+			else if(c == '}' && --depth == 0) end = position;
 		}
+		return end;
 	}
 }
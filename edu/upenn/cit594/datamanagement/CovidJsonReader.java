@@ -0,0 +1,396 @@
+package edu.upenn.cit594.datamanagement;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Pull-style reader of covid JSON files. Reads one object at a time from a top-level array and keeps only
+ * the values of zip_code, etl_timestamp, partially_vaccinated and fully_vaccinated. All other values are
+ * scanned past without being allocated, so memory use does not depend on the size of the document.
+ * Top-level objects that are not enclosed in an array (JSON Lines) are read the same way.
+ * @author andrii podhornyi
+ *
+ */
+public class CovidJsonReader implements Closeable {
+
+	private final Reader reader;
+
+	/**
+	 * Internal buffer, filled from the reader in blocks
+	 */
+	private final char[] buffer = new char[1 << 14];
+	private int position, limit;
+
+	/**
+	 * Number of chars consumed before the current buffer, used in error messages
+	 */
+	private long consumed;
+
+	/**
+	 * Reusable storage for keys and string values
+	 */
+	private final StringBuilder text = new StringBuilder();
+
+	/**
+	 * Values of the current object. Counts are 0 unless given as integers, zip code is valid only
+	 * if given as integer, timestamp is null unless given as string
+	 */
+	private boolean hasZipCode;
+	private long zipCode;
+	private String timestamp;
+	private int partiallyVaccinated, fullyVaccinated;
+
+	/**
+	 * Result of the last integer read
+	 */
+	private long integer;
+
+	/**
+	 * Kinds of values the object fields are read as
+	 */
+	private enum Field {
+		ZIP, TIMESTAMP, PARTIAL, FULL, OTHER
+	}
+
+	public CovidJsonReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Reads the next object of the document
+	 * @return true if object was read, false when there are no more objects
+	 * @throws IOException may be thrown by internal reader or if document is malformed
+	 */
+	public boolean next() throws IOException {
+		while(true) {
+			int c = skipWhitespace();
+			switch(c) {
+			case -1:
+				return false;
+
+			// array brackets and separators between objects are skipped
+			case '[':
+			case ']':
+			case ',':
+				position++;
+				break;
+			case '{':
+				position++;
+				readObject();
+				return true;
+			default:
+				throw error("Expected object");
+			}
+		}
+	}
+
+	/**
+	 * Returns true if zip_code of the current object is an integer
+	 */
+	public boolean hasZipCode() {
+		return hasZipCode;
+	}
+
+	public long getZipCode() {
+		return zipCode;
+	}
+
+	/**
+	 * Returns etl_timestamp of the current object, or null if it is missing or not a string
+	 */
+	public String getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Returns partially_vaccinated of the current object, or 0 if it is missing or not an integer
+	 */
+	public int getPartiallyVaccinated() {
+		return partiallyVaccinated;
+	}
+
+	/**
+	 * Returns fully_vaccinated of the current object, or 0 if it is missing or not an integer
+	 */
+	public int getFullyVaccinated() {
+		return fullyVaccinated;
+	}
+
+	/**
+	 * Closes the internal reader
+	 * @throws IOException may be thrown by internal reader
+	 */
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	/**
+	 * Reads members of an object after its opening brace. Values of required keys are stored,
+	 * later duplicates override earlier ones.
+	 * @throws IOException may be thrown by internal reader or if object is malformed
+	 */
+	private void readObject() throws IOException {
+		hasZipCode = false;
+		timestamp = null;
+		partiallyVaccinated = fullyVaccinated = 0;
+
+		if(skipWhitespace() == '}') {
+			position++;
+			return;
+		}
+		while(true) {
+			if(skipWhitespace() != '"') throw error("Expected key");
+			position++;
+			readString();
+			Field field = field();
+			if(skipWhitespace() != ':') throw error("Expected ':'");
+			position++;
+			readValue(field);
+
+			int c = skipWhitespace();
+			position++;
+			if(c == '}') return;
+			if(c != ',') throw error("Expected ',' or '}'");
+		}
+	}
+
+	/**
+	 * Matches key stored in text buffer against required keys
+	 * @return kind of the field
+	 */
+	private Field field() {
+		if(equals("zip_code")) return Field.ZIP;
+		if(equals("etl_timestamp")) return Field.TIMESTAMP;
+		if(equals("partially_vaccinated")) return Field.PARTIAL;
+		if(equals("fully_vaccinated")) return Field.FULL;
+		return Field.OTHER;
+	}
+
+	/**
+	 * Compares text buffer with given key without creating a string
+	 */
+	private boolean equals(String key) {
+		int length = key.length();
+		if(text.length() != length) return false;
+		for(int i = 0; i < length; i++) {
+			if(text.charAt(i) != key.charAt(i)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the value of a field. Values of other fields and values of unexpected type are skipped
+	 * @param field kind of the field
+	 * @throws IOException may be thrown by internal reader or if value is malformed
+	 */
+	private void readValue(Field field) throws IOException {
+		int c = skipWhitespace();
+		switch(field) {
+		case ZIP:
+			hasZipCode = readInteger(c);
+			if(hasZipCode) zipCode = integer;
+			return;
+		case TIMESTAMP:
+			if(c == '"') {
+				position++;
+				readString();
+				timestamp = text.toString();
+			}
+			else {
+				timestamp = null;
+				skipValue();
+			}
+			return;
+		case PARTIAL:
+			partiallyVaccinated = readInteger(c) ? (int) integer : 0;
+			return;
+		case FULL:
+			fullyVaccinated = readInteger(c) ? (int) integer : 0;
+			return;
+		default:
+			skipValue();
+		}
+	}
+
+	/**
+	 * Reads a value that is expected to be an integer. Values of other types are skipped
+	 * @param c first char of the value
+	 * @return true if the value is an integer, stored in {@code integer}
+	 * @throws IOException may be thrown by internal reader or if value is malformed
+	 */
+	private boolean readInteger(int c) throws IOException {
+		if(isNumberStart(c)) return readInteger();
+		skipValue();
+		return false;
+	}
+
+	private boolean isNumberStart(int c) {
+		return c == '-' || (c >= '0' && c <= '9');
+	}
+
+	/**
+	 * Reads a number token. Stores it in {@code integer} if it has no fraction or exponent part
+	 * and fits in a long
+	 * @return true if the number is an integer
+	 * @throws IOException may be thrown by internal reader
+	 */
+	private boolean readInteger() throws IOException {
+		boolean negative = false, integral = true;
+		long value = 0;
+		int digits = 0;
+		if(peek() == '-') {
+			negative = true;
+			position++;
+		}
+		while(true) {
+			int c = peek();
+			if(c >= '0' && c <= '9') {
+				if(value > (Long.MAX_VALUE - 9) / 10) integral = false;
+				value = value * 10 + (c - '0');
+				digits++;
+			}
+			else if(c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') integral = false;
+			else break;
+			position++;
+		}
+		if(digits == 0) throw error("Malformed number");
+		integer = negative ? -value : value;
+		return integral;
+	}
+
+	/**
+	 * Skips a single value of any type, including nested objects and arrays
+	 * @throws IOException may be thrown by internal reader or if value is malformed
+	 */
+	private void skipValue() throws IOException {
+		int depth = 0;
+		do {
+			int c = skipWhitespace();
+			switch(c) {
+			case -1:
+				throw error("Unexpected end of file");
+			case '{':
+			case '[':
+				depth++;
+				position++;
+				break;
+			case '}':
+			case ']':
+				depth--;
+				position++;
+				break;
+			case ',':
+			case ':':
+				if(depth == 0) throw error("Expected value");
+				position++;
+				break;
+			case '"':
+				position++;
+				skipString();
+				break;
+			default:
+
+				// numbers and literals true, false, null
+				if(!isNumberStart(c) && !Character.isLetter(c)) throw error("Unexpected character");
+				while((c = peek()) != -1 && (isNumberStart(c) || Character.isLetter(c) || c == '.' || c == '+')) position++;
+			}
+		} while(depth > 0);
+		if(depth < 0) throw error("Unbalanced brackets");
+	}
+
+	/**
+	 * Reads the rest of a string after its opening quote into the text buffer, decoding escapes
+	 * @throws IOException may be thrown by internal reader or if string is not terminated
+	 */
+	private void readString() throws IOException {
+		text.setLength(0);
+		while(true) {
+			int c = peek();
+			if(c == -1) throw error("Unterminated string");
+			position++;
+			if(c == '"') return;
+			if(c == '\\') text.append(readEscape());
+			else text.append((char) c);
+		}
+	}
+
+	/**
+	 * Skips the rest of a string after its opening quote
+	 * @throws IOException may be thrown by internal reader or if string is not terminated
+	 */
+	private void skipString() throws IOException {
+		while(true) {
+			int c = peek();
+			if(c == -1) throw error("Unterminated string");
+			position++;
+			if(c == '"') return;
+			if(c == '\\') readEscape();
+		}
+	}
+
+	/**
+	 * Decodes escape sequence after its backslash
+	 * @return decoded char
+	 * @throws IOException may be thrown by internal reader or if escape is malformed
+	 */
+	private char readEscape() throws IOException {
+		int c = peek();
+		position++;
+		switch(c) {
+		case '"': return '"';
+		case '\\': return '\\';
+		case '/': return '/';
+		case 'b': return '\b';
+		case 'f': return '\f';
+		case 'n': return '\n';
+		case 'r': return '\r';
+		case 't': return '\t';
+		case 'u':
+			int value = 0;
+			for(int i = 0; i < 4; i++) {
+				int digit = Character.digit(peek(), 16);
+				if(digit < 0) throw error("Malformed unicode escape");
+				value = value * 16 + digit;
+				position++;
+			}
+			return (char) value;
+		default:
+			throw error("Malformed escape");
+		}
+	}
+
+	/**
+	 * Skips whitespace chars
+	 * @return the next non-whitespace char without consuming it, or -1 at the end of input
+	 * @throws IOException may be thrown by internal reader
+	 */
+	private int skipWhitespace() throws IOException {
+		int c;
+		while((c = peek()) == ' ' || c == '\n' || c == '\r' || c == '\t') position++;
+		return c;
+	}
+
+	/**
+	 * Returns the next char without consuming it, refilling the buffer when needed
+	 * @return next char, or -1 at the end of input
+	 * @throws IOException may be thrown by internal reader
+	 */
+	private int peek() throws IOException {
+		if(position == limit) {
+			consumed += limit;
+			position = 0;
+			limit = reader.read(buffer, 0, buffer.length);
+			if(limit <= 0) {
+				limit = 0;
+				return -1;
+			}
+		}
+		return buffer[position];
+	}
+
+	private IOException error(String message) {
+		return new IOException(message + " at char " + (consumed + position));
+	}
+}
@@ -1,11 +1,13 @@
 package edu.upenn.cit594.datamanagement;
 
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import edu.upenn.cit594.logging.Logger;
-import edu.upenn.cit594.util.CovidData;
+import edu.upenn.cit594.util.CovidStore;
 
 /**
  * Base class for covid readers 
@@ -21,33 +23,113 @@ public abstract class CovidParser {
 	protected String filename;
 	
 	/**
-	 * Logger instance
+	 * Settings of the parser 
 	 */
-	 protected Logger logger = Logger.getLoggerInstance();
-	
+	protected ParserOptions options;
 	
 	/**
-	 * pre-compiled date pattern 
+	 * Logger instance
 	 */
-	private Pattern datePattern = Pattern.compile("^\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}$");
-	protected Matcher dateMatcher = datePattern.matcher("");
-	
+	 protected Logger logger = Logger.getLoggerInstance();
+	 
 	/**
-	 * pre-compiled zip pattern 
+	 * Offset right after the last record read from the file. Appended records are read from here 
 	 */
-	private Pattern zipPattern = Pattern.compile("^[0-9]{5}$");
-	protected Matcher zipMatcher = zipPattern.matcher("");
+	private long offset;
 	
 	
 	
 	public CovidParser(String filename) {
+		this(filename, new ParserOptions());
+	}
+	
+	public CovidParser(String filename, ParserOptions options) {
 		this.filename = filename;
+		this.options = options;
 	}
 	
 	/**
-	 * Parses file into list of CovidData objects 
-	 * @return List of CovidData objects
+	 * Returns covid data of the file. Data is loaded from the snapshot of the file if snapshots are enabled
+	 * and the snapshot is up to date. Otherwise the file is parsed and the snapshot is rebuilt 
+	 * @return store of covid records
 	 * @throws Exception may be thrown by internal reader or parser 
 	 */
-	public abstract List<CovidData> getCovidData() throws Exception;
+	public CovidStore getCovidData() throws Exception {
+		
+		logger.log(filename);
+		
+		// file is read up to its current size, later records are left for getAppendedData. A followed
+		// file is read only up to its last complete record 
+		long size = Files.size(Path.of(filename));
+		byte[] key = options.isSnapshot() ? SnapshotCache.key(filename, size) : null;
+		boolean follow = options.isFollow() && !InflatingInputStream.isCompressed(filename);
+		offset = 0;
+		if(size == 0) return new CovidStore(0);
+		
+		// snapshot keeps the end of its records, the file is scanned for it only when it is parsed 
+		if(options.isSnapshot()) {
+			SnapshotCache.CovidSnapshot snapshot = SnapshotCache.loadCovid(filename, follow);
+			if(snapshot != null) {
+				offset = snapshot.end;
+				return snapshot.data;
+			}
+		}
+		long end = follow ? recordEnd(0, size) : size;
+		offset = end;
+		if(end == 0) return new CovidStore(0);
+		CovidStore data = parseCovidData(0, end);
+		if(options.isSnapshot()) SnapshotCache.storeCovid(filename, key, data, end, follow);
+		return data;
+	}
+	
+	/**
+	 * Returns records appended to the file since the last call or since {@code getCovidData}. Only complete
+	 * records are read, a record that is still being written is left for the next call. Cost depends only on
+	 * the size of the appended part. Compressed files are not followed 
+	 * @return store of appended records, empty if nothing was appended 
+	 * @throws IOException may be thrown by internal reader or parser, or if the file was truncated 
+	 */
+	public CovidStore getAppendedData() throws IOException {
+		if(InflatingInputStream.isCompressed(filename)) return new CovidStore(0);
+		long size = Files.size(Path.of(filename));
+		if(size < offset) throw new IOException(filename + " was truncated");
+		if(size == offset) return new CovidStore(0);
+		
+		long end = recordEnd(offset, size);
+		if(end == offset) return new CovidStore(0);
+		CovidStore data = parseCovidData(offset, end);
+		offset = end;
+		return data;
+	}
+	
+	/**
+	 * Returns the end of the last complete record in given byte range of the file 
+	 * @param start offset right after a record, or the beginning of the file 
+	 * @param end offset right after the last byte of the range 
+	 * @return offset right after the last complete record, {@code start} if there is none 
+	 * @throws IOException may be thrown by internal stream 
+	 */
+	private long recordEnd(long start, long end) throws IOException {
+		try(InputStream in = new BufferedInputStream(new RangeInputStream(filename, start, end))) {
+			return start + lastRecordEnd(in);
+		}
+	}
+	
+	/**
+	 * Parses given byte range of the file into a store of covid records. Range starts either at the
+	 * beginning of the file or right after a record 
+	 * @param start offset of the first byte to parse 
+	 * @param end offset right after the last byte to parse 
+	 * @return store of covid records
+	 * @throws IOException may be thrown by internal reader or parser 
+	 */
+	protected abstract CovidStore parseCovidData(long start, long end) throws IOException;
+	
+	/**
+	 * Finds the end of the last complete record in the stream 
+	 * @param in stream that starts right after a record 
+	 * @return number of bytes up to and including the last complete record 
+	 * @throws IOException may be thrown by internal stream 
+	 */
+	protected abstract long lastRecordEnd(InputStream in) throws IOException;
 }
@@ -0,0 +1,194 @@
+package edu.upenn.cit594.datamanagement;
+
+/**
+ * Decodes numeric fields, zip codes and timestamps straight from char buffers of the lexers.
+ * Missing and invalid values are reported through return values instead of exceptions, so blank
+ * and malformed fields cost no more than valid ones.
+ * @author andrii podhornyi
+ *
+ */
+public class FieldDecoder {
+
+	/**
+	 * Returned by {@code parseInt} for values that are not valid integers
+	 */
+	public static final long INVALID = Long.MIN_VALUE;
+
+	/**
+	 * Exact powers of ten, used by the fast path of {@code parseDouble}
+	 */
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	/**
+	 * Chars that may appear in decimal notations accepted by {@code Double.parseDouble}
+	 */
+	private static final String DECIMAL_CHARS = "0123456789.+-eEdDfF \t";
+
+	/**
+	 * Largest integer up to which every double is exact
+	 */
+	private static final long MAX_EXACT = 1L << 53;
+
+	/**
+	 * Shape of a timestamp, 'd' stands for any digit
+	 */
+	private static final String TIMESTAMP = "dddd-dd-dd dd:dd:dd";
+
+	private FieldDecoder() {}
+
+	/**
+	 * Parses integer with the rules of {@code Integer.parseInt}: optional sign followed by digits
+	 * @param chars buffer holding the field
+	 * @param from offset of the first char
+	 * @param to offset right after the last char
+	 * @return value of the field, or {@code INVALID} if it is not an int
+	 */
+	public static long parseInt(char[] chars, int from, int to) {
+		if(from >= to) return INVALID;
+		boolean negative = chars[from] == '-';
+		if(negative || chars[from] == '+') from++;
+		if(from == to) return INVALID;
+
+		long value = 0;
+		for(int i = from; i < to; i++) {
+			int digit = chars[i] - '0';
+			if(digit < 0 || digit > 9) return INVALID;
+			value = value * 10 + digit;
+			if(value > Integer.MAX_VALUE + 1L) return INVALID;
+		}
+		if(negative) value = -value;
+		return value > Integer.MAX_VALUE ? INVALID : value;
+	}
+
+	/**
+	 * Parses double with the result of {@code Double.parseDouble}. Plain decimals are parsed directly,
+	 * other decimal notations fall back to {@code Double.parseDouble}. NaN, Infinity and hexadecimal
+	 * notations are treated as invalid
+	 * @param chars buffer holding the field
+	 * @param from offset of the first char
+	 * @param to offset right after the last char
+	 * @return value of the field, or NaN if it is missing or not a number
+	 */
+	public static double parseDouble(char[] chars, int from, int to) {
+		if(from >= to) return Double.NaN;
+		int i = from;
+		boolean negative = chars[i] == '-';
+		if(negative || chars[i] == '+') i++;
+
+		// digits and optional fraction, while the mantissa stays exact
+		long mantissa = 0;
+		int digits = 0, scale = 0;
+		boolean point = false;
+		for(; i < to; i++) {
+			char c = chars[i];
+			if(c >= '0' && c <= '9') {
+				if(mantissa >= MAX_EXACT / 10) break;
+				mantissa = mantissa * 10 + (c - '0');
+				digits++;
+				if(point) scale++;
+			}
+			else if(c == '.' && !point) point = true;
+			else break;
+		}
+
+		// both mantissa and power of ten are exact, so a single division is correctly rounded
+		if(i == to && digits > 0 && scale < POWERS_OF_TEN.length) {
+			double value = mantissa / POWERS_OF_TEN[scale];
+			return negative ? -value : value;
+		}
+		return parseDoubleSlow(chars, from, to);
+	}
+
+	/**
+	 * Parses exponents, long mantissas and other notations accepted by {@code Double.parseDouble}.
+	 * Fields with chars that can not be a part of a double are rejected without parsing
+	 */
+	private static double parseDoubleSlow(char[] chars, int from, int to) {
+		for(int i = from; i < to; i++) {
+			char c = chars[i];
+			if(DECIMAL_CHARS.indexOf(c) < 0) return Double.NaN;
+		}
+		try {
+			return Double.parseDouble(new String(chars, from, to - from));
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Checks if the field starts with 5 digits
+	 * @param chars buffer holding the field
+	 * @param from offset of the first char
+	 * @param to offset right after the last char
+	 * @return true if the first 5 chars are digits
+	 */
+	public static boolean startsWithZip(char[] chars, int from, int to) {
+		if(to - from < 5) return false;
+		for(int i = from; i < from + 5; i++) {
+			if(chars[i] < '0' || chars[i] > '9') return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the field is exactly 5 digits
+	 */
+	public static boolean isZip(char[] chars, int from, int to) {
+		return to - from == 5 && startsWithZip(chars, from, to);
+	}
+
+	/**
+	 * Returns the zip code formed by the first 5 chars of the field. The field should start with a zip code
+	 */
+	public static int parseZip(char[] chars, int from) {
+		int zip = 0;
+		for(int i = from; i < from + 5; i++) zip = zip * 10 + (chars[i] - '0');
+		return zip;
+	}
+
+	/**
+	 * Checks if the field follows YYYY-MM-DD hh:mm:ss timestamp pattern
+	 * @param chars buffer holding the field
+	 * @param from offset of the first char
+	 * @param to offset right after the last char
+	 * @return true if the field is a timestamp
+	 */
+	public static boolean isTimestamp(char[] chars, int from, int to) {
+		if(to - from != TIMESTAMP.length()) return false;
+		for(int i = 0; i < TIMESTAMP.length(); i++) {
+			if(!matches(TIMESTAMP.charAt(i), chars[from + i])) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the string follows YYYY-MM-DD hh:mm:ss timestamp pattern
+	 */
+	public static boolean isTimestamp(String value) {
+		if(value.length() != TIMESTAMP.length()) return false;
+		for(int i = 0; i < TIMESTAMP.length(); i++) {
+			if(!matches(TIMESTAMP.charAt(i), value.charAt(i))) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns YYYYMMDD key of the date a timestamp starts with. The field should be a timestamp
+	 * @param chars buffer holding the field
+	 * @param from offset of the first char
+	 * @return key of the date
+	 */
+	public static int parseDateKey(char[] chars, int from) {
+		int key = 0;
+		for(int i = from; i < from + 10; i++) {
+			if(chars[i] != '-') key = key * 10 + (chars[i] - '0');
+		}
+		return key;
+	}
+
+	private static boolean matches(char expected, char c) {
+		return expected == 'd' ? c >= '0' && c <= '9' : expected == c;
+	}
+}
@@ -0,0 +1,49 @@
+package edu.upenn.cit594.datamanagement;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Stream of a decompressed gzip file. The file is inflated on its own thread into a bounded queue of
+ * blocks, so decompression of the next blocks overlaps with lexing of the current one
+ * @author andrii podhornyi
+ *
+ */
+class InflatingInputStream extends PrefetchInputStream {
+
+	/**
+	 * Size of the buffer of the inflater
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Opens given gzip file and starts inflating it
+	 * @param filename name of the file to be read
+	 * @throws IOException may be thrown while opening the file or if it is not in gzip format
+	 */
+	InflatingInputStream(String filename) throws IOException {
+		super(inflate(filename), "gzip-inflater");
+	}
+
+	/**
+	 * Checks if given file is gzip-compressed by its extension
+	 */
+	static boolean isCompressed(String filename) {
+		return filename.regionMatches(true, filename.length() - 3, ".gz", 0, 3);
+	}
+
+	/**
+	 * Opens given file and reads its gzip header
+	 */
+	private static InputStream inflate(String filename) throws IOException {
+		FileInputStream file = new FileInputStream(filename);
+		try {
+			return new GZIPInputStream(file, BUFFER_SIZE);
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package edu.upenn.cit594.datamanagement;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import edu.upenn.cit594.logging.Logger;
+
+/**
+ * Parses a CSV file in three stages connected by bounded queues: an I/O stage that reads the file in
+ * large blocks, a lexing stage that copies wanted fields of rows into batches and conversion workers
+ * that build records from the batches. A full queue stops the stage in front of it, so a slow stage
+ * slows the whole pipeline down instead of filling the memory. Time of each stage is logged, so the
+ * bottleneck of the machine can be seen
+ * @author andrii podhornyi
+ *
+ */
+class IngestPipeline {
+
+	/**
+	 * Number of rows in a batch and number of batches waiting per conversion worker
+	 */
+	private static final int BATCH_ROWS = 1024;
+	private static final int BATCHES_PER_WORKER = 2;
+
+	/**
+	 * Marks the end of the batches, one is queued for each worker
+	 */
+	private static final RowBatch END = new RowBatch(-1, 0);
+
+	/**
+	 * Builds records from a batch of rows
+	 * @param <R> type of the records of a batch
+	 */
+	interface Converter<R> {
+
+		/**
+		 * Builds records from rows of given batch. Called on worker threads, possibly for several
+		 * batches at the same time
+		 * @param batch rows to convert, selected one by one with {@code RowBatch.select}
+		 * @return records of the batch
+		 */
+		R convert(RowBatch batch);
+	}
+
+	private final String filename;
+	private final long start, end;
+	private final int workers;
+
+	/**
+	 * Creates pipeline for given byte range of the file
+	 * @param filename name of the file to be parsed
+	 * @param start offset of the first byte to parse, the header is expected at 0
+	 * @param end offset right after the last byte to parse
+	 * @param workers number of conversion workers
+	 */
+	IngestPipeline(String filename, long start, long end, int workers) {
+		this.filename = filename;
+		this.start = start;
+		this.end = end;
+		this.workers = Math.max(1, workers);
+	}
+
+	/**
+	 * Runs the pipeline
+	 * @param header receives the header row if the range starts at 0 and returns indexes of wanted
+	 *        fields. Called once before any row is converted, with null for empty files
+	 * @param converter builds records from batches of rows
+	 * @return records of each batch, in file order
+	 * @throws IOException may be thrown by internal stream, or if a stage failed
+	 */
+	<R> List<R> run(Function<String[], int[]> header, Converter<R> converter) throws IOException {
+		BlockingQueue<RowBatch> batches = new ArrayBlockingQueue<>(workers * BATCHES_PER_WORKER);
+		ConcurrentHashMap<Integer, R> results = new ConcurrentHashMap<>();
+		AtomicLong convertNanos = new AtomicLong(), idleNanos = new AtomicLong();
+		long[] lexTimes = new long[2];
+		PrefetchInputStream[] input = new PrefetchInputStream[1];
+
+		ExecutorService pool = Executors.newFixedThreadPool(workers + 1, task -> {
+			Thread thread = new Thread(task, "ingest-pipeline");
+			thread.setDaemon(true);
+			return thread;
+		});
+		ExecutorCompletionService<Integer> stages = new ExecutorCompletionService<>(pool);
+		long started = System.nanoTime();
+		try {
+			stages.submit(() -> lex(header, batches, lexTimes, input));
+			for(int i = 0; i < workers; i++) {
+				stages.submit(() -> convert(converter, batches, results, convertNanos, idleNanos));
+			}
+
+			// a failed stage would leave the others blocked on the queues, so all are stopped at once 
+			int total = 0;
+			for(int i = 0; i <= workers; i++) total = Math.max(total, CSVSplitter.get(stages.take()));
+			List<R> data = new ArrayList<>(total);
+			for(int i = 0; i < total; i++) data.add(results.get(i));
+
+			Logger.getLoggerInstance().log(String.format(
+					"pipeline %s: total %d ms, read %d ms (waiting %d ms), lex %d ms (waiting %d ms), convert %d ms on %d workers (waiting %d ms)",
+					filename, millis(System.nanoTime() - started), millis(input[0].getReadNanos()), millis(input[0].getWaitNanos()),
+					millis(lexTimes[0]), millis(lexTimes[1]), millis(convertNanos.get()), workers, millis(idleNanos.get())));
+			return data;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while parsing " + filename, e);
+		} catch (IOException | RuntimeException e) {
+			pool.shutdownNow();
+			throw e;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Lexing stage. Reads rows from the I/O stage and queues them in batches
+	 * @return number of batches
+	 */
+	private int lex(Function<String[], int[]> header, BlockingQueue<RowBatch> batches, long[] times,
+			PrefetchInputStream[] input) throws IOException, InterruptedException {
+		long busy = 0, waiting = 0, mark = System.nanoTime();
+		int count = 0;
+		InputStream stream = LexerFactory.openStream(filename, start, end);
+		input[0] = stream instanceof PrefetchInputStream ? (PrefetchInputStream) stream
+				: new PrefetchInputStream(stream, "ingest-reader");
+		try(CSVLexer lexer = new CSVLexer(new BufferedReader(new InputStreamReader(input[0])))) {
+			int[] fields = header.apply(start == 0 ? lexer.readRow() : null);
+			lexer.setFields(fields);
+			RowBatch batch = new RowBatch(count, BATCH_ROWS, fields);
+			while(lexer.nextRow()) {
+				batch.add(lexer);
+				if(!batch.isFull()) continue;
+				long full = System.nanoTime();
+				busy += full - mark;
+				batches.put(batch);
+				mark = System.nanoTime();
+				waiting += mark - full;
+				batch = new RowBatch(++count, BATCH_ROWS, fields);
+			}
+			if(batch.size() > 0) {
+				batches.put(batch);
+				count++;
+			}
+			busy += System.nanoTime() - mark;
+		} finally {
+
+			// workers stop once they take their end marker, also if lexing failed 
+			for(int i = 0; i < workers; i++) batches.put(END);
+		}
+		times[0] = busy;
+		times[1] = waiting;
+		return count;
+	}
+
+	/**
+	 * Conversion stage. Converts batches until the end marker is taken
+	 * @return 0, the number of batches is returned by the lexing stage
+	 */
+	private <R> int convert(Converter<R> converter, BlockingQueue<RowBatch> batches, ConcurrentHashMap<Integer, R> results,
+			AtomicLong busy, AtomicLong idle) throws InterruptedException {
+		while(true) {
+			long waiting = System.nanoTime();
+			RowBatch batch = batches.take();
+			long taken = System.nanoTime();
+			idle.addAndGet(taken - waiting);
+			if(batch == END) return 0;
+			results.put(batch.getSequence(), converter.convert(batch));
+			busy.addAndGet(System.nanoTime() - taken);
+		}
+	}
+
+	private static long millis(long nanos) {
+		return nanos / 1_000_000;
+	}
+}
@@ -0,0 +1,61 @@
+package edu.upenn.cit594.datamanagement;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+/**
+ * Creates lexers for the CSV parsers and input streams for the other parsers. Files with .gz extension
+ * are decompressed on the fly; they are always read from the beginning through a reader, since neither
+ * mapping nor byte ranges apply to compressed data
+ * @author andrii podhornyi
+ *
+ */
+class LexerFactory {
+
+	private LexerFactory() {}
+
+	/**
+	 * Opens given file with the requested lexer implementation
+	 * @param filename name of the file to be read
+	 * @param mapped true for {@code MappedCSVLexer}, false for {@code CSVLexer} over a buffered reader
+	 * @return lexer positioned at the beginning of the file
+	 * @throws IOException may be thrown while opening the file
+	 */
+	static CSVLexer open(String filename, boolean mapped) throws IOException {
+		if(InflatingInputStream.isCompressed(filename)) return open(filename, false, 0, Long.MAX_VALUE);
+		if(mapped) return new MappedCSVLexer(filename);
+		return new CSVLexer(new BufferedReader(new FileReader(filename)));
+	}
+
+	/**
+	 * Opens given byte range of the file with the requested lexer implementation. The range should
+	 * start at the beginning of a row, its end is treated as end of file
+	 * @param filename name of the file to be read
+	 * @param mapped true for {@code MappedCSVLexer}, false for {@code CSVLexer} over a buffered reader
+	 * @param start offset of the first byte to read
+	 * @param end offset right after the last byte to read
+	 * @return lexer positioned at the beginning of the range
+	 * @throws IOException may be thrown while opening the file
+	 */
+	static CSVLexer open(String filename, boolean mapped, long start, long end) throws IOException {
+		if(mapped && !InflatingInputStream.isCompressed(filename)) return new MappedCSVLexer(filename, start, end);
+		return new CSVLexer(new BufferedReader(new InputStreamReader(openStream(filename, start, end))));
+	}
+
+	/**
+	 * Opens given byte range of the file as a stream. Compressed files are decompressed and read as a whole
+	 * @param filename name of the file to be read
+	 * @param start offset of the first byte to read, should be 0 for compressed files
+	 * @param end offset right after the last byte to read, ignored for compressed files
+	 * @return stream positioned at the beginning of the range
+	 * @throws IOException may be thrown while opening the file
+	 */
+	static InputStream openStream(String filename, long start, long end) throws IOException {
+		if(!InflatingInputStream.isCompressed(filename)) return new RangeInputStream(filename, start, end);
+		if(start > 0) throw new IOException("Compressed file " + filename + " can only be read from the beginning");
+		return new InflatingInputStream(filename);
+	}
+}
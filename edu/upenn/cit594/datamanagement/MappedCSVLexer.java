@@ -0,0 +1,92 @@
+package edu.upenn.cit594.datamanagement;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@code CSVLexer} that reads its input from a memory-mapped file instead of a {@code Reader}.
+ * Bytes are taken straight from the mapped buffer and treated as ASCII, which skips the
+ * charset decoding and synchronization of {@code Reader.read()}. Non-ASCII bytes are passed
+ * through as ISO-8859-1 chars. The quoting, CR and LF rules are the ones of {@code CSVLexer}.
+ * @author andrii podhornyi
+ *
+ */
+public class MappedCSVLexer extends CSVLexer {
+
+	/**
+	 * Size of a single mapped window. Files larger than this are mapped window by window
+	 */
+	private static final long WINDOW_SIZE = 1L << 26;
+
+	private final FileChannel channel;
+
+	/**
+	 * Position in the file right after the current window
+	 */
+	private long position;
+
+	/**
+	 * Position in the file at which the lexer stops reading
+	 */
+	private final long end;
+
+	/**
+	 * Currently mapped part of the file
+	 */
+	private MappedByteBuffer window;
+
+	/**
+	 * Opens and maps given file
+	 * @param filename name of the file to be read
+	 * @throws IOException may be thrown by internal channel
+	 */
+	public MappedCSVLexer(String filename) throws IOException {
+		this.channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ);
+		this.position = 0;
+		this.end = channel.size();
+	}
+
+	/**
+	 * Opens and maps given byte range of the file. The range should start at the beginning of a row,
+	 * its end is treated as end of file.
+	 * @param filename name of the file to be read
+	 * @param start offset of the first byte to read
+	 * @param end offset right after the last byte to read
+	 * @throws IOException may be thrown by internal channel
+	 */
+	public MappedCSVLexer(String filename, long start, long end) throws IOException {
+		this.channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ);
+		this.position = start;
+		this.end = Math.min(end, channel.size());
+	}
+
+	/**
+	 * Returns the next byte of the mapped file as char. Maps the next window when the current one
+	 * is exhausted.
+	 * @return next char as int, or -1 when the end of file is reached
+	 * @throws IOException may be thrown by internal channel
+	 */
+	@Override
+	protected int read() throws IOException {
+		if(window == null || !window.hasRemaining()) {
+			if(position >= end) return -1;
+			long size = Math.min(WINDOW_SIZE, end - position);
+			window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+			position += size;
+		}
+		return window.get() & 0xFF;
+	}
+
+	/**
+	 * Closes internal channel. Mapped windows are released by the garbage collector
+	 * @throws IOException may be thrown by internal channel
+	 */
+	@Override
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+	}
+}
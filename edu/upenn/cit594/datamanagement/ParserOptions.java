@@ -0,0 +1,91 @@
+package edu.upenn.cit594.datamanagement;
+
+/**
+ * Settings shared by all parsers. Defaults read files sequentially through {@code CSVLexer}
+ * without snapshots
+ * @author andrii podhornyi
+ *
+ */
+public class ParserOptions {
+
+	/**
+	 * True if CSV files are read through {@code MappedCSVLexer}. Property files parsed by more than
+	 * one thread are always mapped, since their byte ranges are lexed independently
+	 */
+	private boolean mapped;
+
+	/**
+	 * Number of threads a parser may use. More than one thread parses an uncompressed property file in
+	 * byte ranges through {@code MappedCSVLexer}, whatever {@code mapped} is
+	 */
+	private int threads = 1;
+
+	/**
+	 * True if parsed data is loaded from and stored to binary snapshots next to input files
+	 */
+	private boolean snapshot;
+
+	/**
+	 * True if CSV files are parsed by {@code IngestPipeline}, with {@code threads} conversion workers
+	 */
+	private boolean pipeline;
+	
+	/**
+	 * True if property data is kept in direct buffers outside of the heap once it is grouped by zip code 
+	 */
+	private boolean offHeap;
+	
+	/**
+	 * True if the covid file is followed for appended records. The first parse then stops at the last
+	 * complete record, so a record that is still being written is read once it is complete 
+	 */
+	private boolean follow;
+
+	public boolean isMapped() {
+		return mapped;
+	}
+
+	public void setMapped(boolean mapped) {
+		this.mapped = mapped;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	public boolean isSnapshot() {
+		return snapshot;
+	}
+
+	public void setSnapshot(boolean snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	public boolean isPipeline() {
+		return pipeline;
+	}
+
+	public void setPipeline(boolean pipeline) {
+		this.pipeline = pipeline;
+	}
+
+	public boolean isOffHeap() {
+		return offHeap;
+	}
+
+	public void setOffHeap(boolean offHeap) {
+		this.offHeap = offHeap;
+	}
+
+	public boolean isFollow() {
+		return follow;
+	}
+
+	public void setFollow(boolean follow) {
+		this.follow = follow;
+	}
+}
@@ -1,12 +1,10 @@
 package edu.upenn.cit594.datamanagement;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import edu.upenn.cit594.logging.Logger;
 import edu.upenn.cit594.util.PopulationData;
@@ -29,52 +27,76 @@ public class PopulationParser {
 	 */
 	private int zipField, populationField;
 	
+	/**
+	 * Settings of the parser 
+	 */
+	private ParserOptions options;
+	
 	
 	public PopulationParser(String filename) {
+		this(filename, new ParserOptions());
+	}
+	
+	public PopulationParser(String filename, ParserOptions options) {
 		this.filename = filename;
+		this.options = options;
 	}
 	
 	
 	/**
-	 * Parses file line by line, creates {@code PopulationData} objects for each valid line.
-	 * Line is considered valid if zip field is 5-digit code and population field is valid integer  
+	 * Returns population data of the file. Data is loaded from the snapshot of the file if snapshots are enabled
+	 * and the snapshot is up to date. Otherwise the file is parsed and the snapshot is rebuilt 
 	 * @return list of PopulationData objects 
 	 * @throws IOException can be thrown by internal reader 
 	 */
 	public List<PopulationData> getPopulationData() throws IOException {
 		
 		Logger.getLoggerInstance().log(filename);
+		if(!options.isSnapshot()) return parsePopulationData();
 		
-		// pattern for zip field 
-		Pattern pattern = Pattern.compile("^\\d{5}$");
-		Matcher matcher = pattern.matcher("");
+		List<PopulationData> data = SnapshotCache.loadPopulation(filename);
+		if(data != null) return data;
+		
+		// key is taken before parsing, a file that changes meanwhile leaves a stale snapshot 
+		byte[] key = SnapshotCache.key(filename, Files.size(Path.of(filename)));
+		data = parsePopulationData();
+		SnapshotCache.storePopulation(filename, key, data);
+		return data;
+	}
+	
+	/**
+	 * Parses file line by line, creates {@code PopulationData} objects for each valid line.
+	 * Line is considered valid if zip field is 5-digit code and population field is valid integer  
+	 * @return list of PopulationData objects 
+	 * @throws IOException can be thrown by internal reader 
+	 */
+	private List<PopulationData> parsePopulationData() throws IOException {
 		
 		// holds parse results 
 		LinkedList<PopulationData> data = new LinkedList<>();
 		
-		try(FileReader fr = new FileReader(filename); BufferedReader br = new BufferedReader(fr)){
-			CSVLexer lexer = new CSVLexer(br);
+		try(CSVLexer lexer = LexerFactory.open(filename, options.isMapped())){
 			
 			// first row is always header row, therefore field numbers should be extracted 
 			setInitialFields(lexer.readRow());
-			String[] fields;
-			int zipData, populationData;
 			
-			// read file until EOF is reached 
-			while((fields = lexer.readRow()) != null) {
+			// only required fields are stored by the lexer 
+			lexer.setFields(zipField, populationField);
+			
+			// read file until EOF is reached. Fields are decoded from the lexer's buffer 
+			while(lexer.nextRow()) {
+				char[] chars = lexer.getChars();
 				
-				// pre-defined matcher is reset with current zip field for checking 
-				if(matcher.reset(fields[zipField]).find())
-					zipData = Integer.parseInt(fields[zipField]);
-				else continue;
+				// zip field should be exactly 5 digits 
+				if(!lexer.hasField(zipField) || !lexer.hasField(populationField)) continue;
+				int start = lexer.getFieldStart(zipField);
+				if(!FieldDecoder.isZip(chars, start, lexer.getFieldEnd(zipField))) continue;
+				int zipData = FieldDecoder.parseZip(chars, start);
 				
 				// entire row is ignored if population is not valid integer 
-				try {
-					populationData = Integer.parseInt(fields[populationField]);
-				} catch (NumberFormatException e) {
-					continue;
-				}
-				data.add(new PopulationData(zipData, populationData));
+				long populationData = FieldDecoder.parseInt(chars, lexer.getFieldStart(populationField), lexer.getFieldEnd(populationField));
+				if(populationData == FieldDecoder.INVALID) continue;
+				data.add(new PopulationData(zipData, (int) populationData));
 			}
 		}
 		return data;
@@ -0,0 +1,149 @@
+package edu.upenn.cit594.datamanagement;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Stream that reads its source on its own thread into a bounded queue of blocks, so reading or
+ * decompressing the next blocks overlaps with lexing of the current one. The reading thread waits
+ * when the queue is full, so memory use does not depend on the size of the source
+ * @author andrii podhornyi
+ *
+ */
+class PrefetchInputStream extends InputStream {
+
+	/**
+	 * Size of a single block and maximum number of blocks waiting to be read
+	 */
+	private static final int BLOCK_SIZE = 1 << 16;
+	private static final int CAPACITY = 8;
+
+	/**
+	 * Marks the end of the source
+	 */
+	private static final byte[] END = new byte[0];
+
+	private final BlockingQueue<byte[]> blocks = new ArrayBlockingQueue<>(CAPACITY);
+	private final Thread prefetcher;
+
+	/**
+	 * Exception thrown while reading the source, rethrown to the reader once all blocks before it are read
+	 */
+	private volatile IOException failure;
+
+	/**
+	 * Time the reading thread spent reading the source and waiting for free space in the queue
+	 */
+	private volatile long readNanos, waitNanos;
+
+	/**
+	 * Block that is currently read and position of the next byte in it
+	 */
+	private byte[] block;
+	private int position;
+
+	/**
+	 * Starts reading given source
+	 * @param source stream to be read, closed by the reading thread
+	 * @param name name of the reading thread
+	 */
+	PrefetchInputStream(InputStream source, String name) {
+		prefetcher = new Thread(() -> prefetch(source), name);
+		prefetcher.setDaemon(true);
+		prefetcher.start();
+	}
+
+	/**
+	 * Body of the reading thread. Stops early if the stream is closed
+	 */
+	private void prefetch(InputStream source) {
+		long read = 0, wait = 0;
+		try(source) {
+			while(true) {
+				long start = System.nanoTime();
+				byte[] bytes = new byte[BLOCK_SIZE];
+				int count = source.readNBytes(bytes, 0, BLOCK_SIZE);
+				long filled = System.nanoTime();
+				read += filled - start;
+				if(count == 0) break;
+				blocks.put(count == BLOCK_SIZE ? bytes : Arrays.copyOf(bytes, count));
+				wait += System.nanoTime() - filled;
+			}
+		} catch (IOException e) {
+			failure = e;
+		} catch (InterruptedException e) {
+			return;
+		}
+		readNanos = read;
+		waitNanos = wait;
+		try {
+			blocks.put(END);
+		} catch (InterruptedException e) {
+			return;
+		}
+	}
+
+	/**
+	 * Returns time the reading thread spent reading the source. Complete once the end of the stream was read
+	 */
+	long getReadNanos() {
+		return readNanos;
+	}
+
+	/**
+	 * Returns time the reading thread waited for the reader. Complete once the end of the stream was read
+	 */
+	long getWaitNanos() {
+		return waitNanos;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if(!fill()) return -1;
+		return block[position++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException {
+		if(length == 0) return 0;
+		if(!fill()) return -1;
+		int count = Math.min(length, block.length - position);
+		System.arraycopy(block, position, bytes, offset, count);
+		position += count;
+		return count;
+	}
+
+	/**
+	 * Takes the next block from the queue if the current one is exhausted
+	 * @return true if there are bytes to read, false at the end of the source
+	 * @throws IOException if reading the source failed or the reader was interrupted
+	 */
+	private boolean fill() throws IOException {
+		if(block == END) return false;
+		if(block != null && position < block.length) return true;
+		try {
+			block = blocks.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for prefetched data");
+		}
+		position = 0;
+		if(block == END) {
+			if(failure != null) throw failure;
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Stops the reading thread, which closes the source
+	 */
+	@Override
+	public void close() {
+		prefetcher.interrupt();
+	}
+}
@@ -1,15 +1,20 @@
 package edu.upenn.cit594.datamanagement;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.LinkedList;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import edu.upenn.cit594.logging.Logger;
-import edu.upenn.cit594.util.PropertyData;
+import edu.upenn.cit594.util.ParallelAggregator;
+import edu.upenn.cit594.util.PropertyStore;
+import edu.upenn.cit594.util.PropertyTable;
 
 /**
  * Parses given properties file 
@@ -27,70 +32,209 @@ public class PropertyParser {
 	 * Required fields indicators 
 	 */
 	private int zipField, marketField, areaField;
+	
+	/**
+	 * Settings of the parser. File is parsed in byte ranges in parallel if more than one thread is allowed 
+	 */
+	private ParserOptions options;
+	
+	/**
+	 * Number of ranges per thread, so that threads finishing early can pick up remaining work 
+	 */
+	private static final int RANGES_PER_THREAD = 4;
 
 	
 	public PropertyParser(String filename) {
+		this(filename, new ParserOptions());
+	}
+	
+	public PropertyParser(String filename, ParserOptions options) {
 		this.filename = filename;
+		this.options = options;
 	}
 
 	/**
-	 * Parses provided file line by line. Adds new {@code PropertyData} object to the list 
-	 * of object only if zip_code field's first 5 chars are digits. If market and area fields are invalid,
-	 * then null values are passed to the PropertyData constructor
-	 * @return List of PropertyData objects 
+	 * Returns property data of the file. Data is loaded from the snapshot of the file if snapshots are enabled
+	 * and the snapshot is up to date. Otherwise the file is parsed and the snapshot is rebuilt 
+	 * @return store of all valid properties 
 	 * @throws IOException may be thrown by internal reader 
 	 */
-	public List<PropertyData> getPropertyData() throws IOException {
+	public PropertyStore getPropertyData() throws IOException {
 		
 		Logger.getLoggerInstance().log(filename);
+		if(!options.isSnapshot()) return parsePropertyData();
 		
-		// zip code pattern 
-		Pattern pattern = Pattern.compile("^\\d{5}");
-		Matcher matcher = pattern.matcher("");
+		PropertyStore data = SnapshotCache.loadProperties(filename);
+		if(data != null) return data;
 		
-		// holds parse results 
-		LinkedList<PropertyData> data = new LinkedList<>();
+		// key is taken before parsing, a file that changes meanwhile leaves a stale snapshot 
+		byte[] key = SnapshotCache.key(filename, Files.size(Path.of(filename)));
+		data = parsePropertyData();
+		SnapshotCache.storeProperties(filename, key, data);
+		return data;
+	}
+
+	/**
+	 * Returns property data of the file grouped by zip code, on the heap or off the heap as set in options.
+	 * Aggregates of zip codes are computed by as many threads as the parser may use 
+	 * @return table of all valid properties 
+	 * @throws IOException may be thrown by internal reader 
+	 */
+	public PropertyTable getPropertyTable() throws IOException {
+		PropertyStore data = getPropertyData();
+		ParallelAggregator aggregator = new ParallelAggregator(options.getThreads());
+		try {
+			return new PropertyTable(data, options.isOffHeap(), aggregator);
+		} finally {
+			aggregator.shutdown();
+		}
+	}
+
+	/**
+	 * Parses provided file line by line. Adds property to the store only if zip_code field's first
+	 * 5 chars are digits. If market and area fields are invalid, then they are stored as NaN 
+	 * @return store of all valid properties 
+	 * @throws IOException may be thrown by internal reader 
+	 */
+	private PropertyStore parsePropertyData() throws IOException {
+		
+		PropertyStore data;
+		if(options.isPipeline()) data = parsePropertyDataPipelined();
 		
-		try(FileReader fr = new FileReader(filename); BufferedReader br = new BufferedReader(fr)){
+		// compressed files can not be split into byte ranges 
+		else if(options.getThreads() > 1 && !InflatingInputStream.isCompressed(filename)) data = parsePropertyDataParallel();
+		else {
+			data = new PropertyStore();
 			
 			// lexer returns properly formatted rows 
-			CSVLexer reader = new CSVLexer(br);
-			
-			// since first row is header, we need to initially set indexes of required fields 
-			setFieldsIndexes(reader.readRow());
-			String[] fields;
-			
-			// null is returned after EOF is reached 
-			while((fields = reader.readRow()) != null) {
-				int zipCode;
+			try(CSVLexer reader = LexerFactory.open(filename, options.isMapped())){
 				
-				// mather is pre-compiled and therefore just reset with new string every iteration 
-				if(matcher.reset(fields[zipField]).find())
-					zipCode = Integer.parseInt(fields[zipField].substring(0, 5));
-				else continue;
-				
-				// try to cast data to doubles. Null is set on fail 
-				Double marketValue = castDouble(fields[marketField]);
-				Double livableArea = castDouble(fields[areaField]);
-				data.add(new PropertyData(zipCode, marketValue, livableArea));
+				// since first row is header, we need to initially set indexes of required fields 
+				setFieldsIndexes(reader.readRow());
+				parseRows(reader, data);
 			}
 		}
+		data.trim();
 		return data;
 	}
 	
 	/**
-	 * Helper function to cast doubles 
-	 * @param value String to be casted 
-	 * @return casted value on success, null on failure 
+	 * Parses the file by {@code IngestPipeline}. Batches are converted to stores of their own, which are
+	 * merged in file order 
+	 * @return store of all valid properties 
+	 * @throws IOException may be thrown by the pipeline 
 	 */
-	private Double castDouble(String value) {
-		try {
-			return Double.parseDouble(value);
-		}
-		catch (NumberFormatException e) {
-			return null;
+	private PropertyStore parsePropertyDataPipelined() throws IOException {
+		List<PropertyStore> batches = new IngestPipeline(filename, 0, Long.MAX_VALUE, options.getThreads()).run(header -> {
+			setFieldsIndexes(header);
+			return new int[] { zipField, marketField, areaField };
+		}, batch -> {
+			PropertyStore rows = new PropertyStore(batch.size());
+			for(int i = 0; i < batch.size(); i++) {
+				batch.select(i);
+				addRow(batch, rows);
+			}
+			return rows;
+		});
+		return merge(batches);
+	}
+	
+	/**
+	 * Concatenates stores in given order 
+	 */
+	private static PropertyStore merge(List<PropertyStore> stores) {
+		int total = 0;
+		for(PropertyStore store : stores) total += store.size();
+		PropertyStore data = new PropertyStore(total);
+		for(PropertyStore store : stores) data.addAll(store);
+		return data;
+	}
+	
+	/**
+	 * Parses the file in byte ranges on a fork/join pool. Ranges start and end on row boundaries
+	 * and their results are merged in file order, so the output is the same as of the sequential parse.
+	 * Ranges are lexed by {@code MappedCSVLexer} even if the reader lexer was chosen 
+	 * @return store of all valid properties in file order 
+	 * @throws IOException may be thrown by internal lexers 
+	 */
+	private PropertyStore parsePropertyDataParallel() throws IOException {
+		int threads = options.getThreads();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try(FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+			long size = channel.size();
+			
+			// header is parsed on its own to get indexes of required fields and the offset of the first row 
+			try(CSVLexer reader = new MappedCSVLexer(filename)) {
+				setFieldsIndexes(reader.readRow());
+			}
+			long start = CSVSplitter.rowEnd(channel, 0, size, false);
+			long[] bounds = CSVSplitter.split(channel, start, size, threads * RANGES_PER_THREAD, pool);
+			
+			// each range is lexed independently 
+			List<Callable<PropertyStore>> tasks = new ArrayList<>(bounds.length - 1);
+			for(int i = 0; i < bounds.length - 1; i++) {
+				long from = bounds[i], to = bounds[i + 1];
+				tasks.add(() -> {
+					PropertyStore rangeData = new PropertyStore();
+					try(CSVLexer reader = new MappedCSVLexer(filename, from, to)) {
+						parseRows(reader, rangeData);
+					}
+					return rangeData;
+				});
+			}
+			
+			// futures are in the order of ranges, therefore results are merged in file order 
+			List<PropertyStore> results = new ArrayList<>(tasks.size());
+			for(Future<PropertyStore> result : CSVSplitter.invokeAll(pool, tasks)) results.add(CSVSplitter.get(result));
+			return merge(results);
+		} finally {
+			pool.shutdown();
 		}
 	}
+	
+	/**
+	 * Reads rows from the lexer until EOF and adds each valid row to the store 
+	 * @param reader lexer positioned after the header row 
+	 * @param data store to add results to 
+	 * @throws IOException may be thrown by internal reader 
+	 */
+	private void parseRows(CSVLexer reader, PropertyStore data) throws IOException {
+		
+		// only required fields are stored by the lexer 
+		reader.setFields(zipField, marketField, areaField);
+			
+		// false is returned after EOF is reached. Fields are decoded from the lexer's buffer 
+		while(reader.nextRow()) addRow(reader, data);
+	}
+	
+	/**
+	 * Adds the row to the store if zip_code field starts with 5 digits 
+	 * @param row row holding required fields 
+	 * @param data store to add the row to 
+	 */
+	private void addRow(CSVRow row, PropertyStore data) {
+		char[] chars = row.getChars();
+		
+		// zip code field should start with 5 digits 
+		if(!row.hasField(zipField)) return;
+		int start = row.getFieldStart(zipField);
+		if(!FieldDecoder.startsWithZip(chars, start, row.getFieldEnd(zipField))) return;
+		int zipCode = FieldDecoder.parseZip(chars, start);
+		
+		// try to cast data to doubles. NaN is set on fail 
+		data.add(zipCode, castDouble(row, marketField), castDouble(row, areaField));
+	}
+	
+	/**
+	 * Helper function to cast doubles 
+	 * @param reader row holding the field 
+	 * @param field index of the field to be casted 
+	 * @return casted value on success, NaN on failure 
+	 */
+	private double castDouble(CSVRow reader, int field) {
+		if(!reader.hasField(field)) return Double.NaN;
+		return FieldDecoder.parseDouble(reader.getChars(), reader.getFieldStart(field), reader.getFieldEnd(field));
+	}
 
 
 	/**
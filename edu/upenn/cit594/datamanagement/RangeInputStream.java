@@ -0,0 +1,60 @@
+package edu.upenn.cit594.datamanagement;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stream of a byte range of a file. Bytes after the end of the range are never read, so the range
+ * can be parsed while other records are being appended to the file
+ * @author andrii podhornyi
+ *
+ */
+class RangeInputStream extends InputStream {
+
+	private final FileChannel channel;
+
+	/**
+	 * Position of the next byte and position right after the last byte of the range
+	 */
+	private long position;
+	private final long end;
+
+	/**
+	 * Opens given byte range of the file
+	 * @param filename name of the file to be read
+	 * @param start offset of the first byte to read
+	 * @param end offset right after the last byte to read
+	 * @throws IOException may be thrown by internal channel
+	 */
+	RangeInputStream(String filename, long start, long end) throws IOException {
+		this.channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ);
+		this.position = start;
+		this.end = end;
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] single = new byte[1];
+		return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException {
+		if(length == 0) return 0;
+		if(position >= end) return -1;
+		ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, (int) Math.min(length, end - position));
+		int read = channel.read(buffer, position);
+		if(read <= 0) return -1;
+		position += read;
+		return read;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
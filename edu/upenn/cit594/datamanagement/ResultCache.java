@@ -0,0 +1,184 @@
+package edu.upenn.cit594.datamanagement;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+
+import javax.management.NotificationEmitter;
+
+/**
+ * Memory budget shared by result holders. Each result is weighted by its estimated size in bytes and by
+ * the time it took to compute, and results are evicted by GreedyDual-Size: a result has priority
+ * {@code clock + cost / weight}, the result with the lowest priority is evicted first and its priority
+ * becomes the new clock. Results that are used again get their priority raised to the current clock,
+ * so cheap large results leave first and expensive or recently used ones stay. When a heap pool is
+ * still above its usage threshold after a collection, the cache sheds half of its results 
+ * @author andrii podhornyi 
+ *
+ */
+public class ResultCache {
+
+	/**
+	 * Share of a heap pool above which caches shed results 
+	 */
+	private static final double HEAP_THRESHOLD = 0.8;
+	
+	/**
+	 * Caches that shed results under heap pressure. Caches that are no longer used are dropped with their holders 
+	 */
+	private static final Set<ResultCache> WATCHED = Collections.newSetFromMap(new WeakHashMap<>());
+	private static boolean listening;
+	
+	/**
+	 * Results ordered by priority, ties by age 
+	 */
+	private final TreeSet<Entry> entries = new TreeSet<>(Comparator.comparingDouble((Entry entry) -> entry.priority)
+			.thenComparingLong(entry -> entry.sequence));
+	
+	private long capacity;
+	private long weight;
+	private double clock;
+	private long sequence;
+	
+	/**
+	 * A cached result 
+	 */
+	static final class Entry {
+		private final long weight;
+		private final double cost;
+		private final Runnable remover;
+		private double priority;
+		private long sequence;
+		
+		private Entry(long weight, double cost, Runnable remover) {
+			this.weight = weight;
+			this.cost = cost;
+			this.remover = remover;
+		}
+	}
+	
+	/**
+	 * Creates cache 
+	 * @param capacity budget of all results in bytes 
+	 */
+	public ResultCache(long capacity) {
+		this.capacity = capacity;
+	}
+	
+	/**
+	 * Creates cache with budget of an eighth of the maximum heap size 
+	 */
+	public ResultCache() {
+		this(Runtime.getRuntime().maxMemory() / 8);
+	}
+	
+	/**
+	 * Adds a result and evicts results of lowest priority while the budget is exceeded 
+	 * @param weight estimated size of the result in bytes 
+	 * @param cost time it took to compute the result in nanoseconds 
+	 * @param remover removes the result from its holder when it is evicted 
+	 * @return entry of the result 
+	 */
+	synchronized Entry add(long weight, double cost, Runnable remover) {
+		Entry entry = new Entry(Math.max(1, weight), cost, remover);
+		prioritize(entry);
+		this.weight += entry.weight;
+		evict(capacity);
+		return entry;
+	}
+	
+	/**
+	 * Raises priority of a result that is used again 
+	 */
+	synchronized void touch(Entry entry) {
+		if(entries.remove(entry)) prioritize(entry);
+	}
+	
+	/**
+	 * Forgets a result removed from its holder 
+	 */
+	synchronized void remove(Entry entry) {
+		if(entries.remove(entry)) weight -= entry.weight;
+	}
+	
+	private void prioritize(Entry entry) {
+		entry.priority = clock + entry.cost / entry.weight;
+		entry.sequence = sequence++;
+		entries.add(entry);
+	}
+	
+	/**
+	 * Evicts results of lowest priority until their total weight is at most given weight 
+	 */
+	private void evict(long target) {
+		List<Runnable> removers = new ArrayList<>();
+		while(weight > target && !entries.isEmpty()) {
+			Entry entry = entries.pollFirst();
+			clock = entry.priority;
+			weight -= entry.weight;
+			removers.add(entry.remover);
+		}
+		removers.forEach(Runnable::run);
+	}
+	
+	/**
+	 * Sets budget of all results, evicting results that exceed it 
+	 * @param capacity budget in bytes 
+	 */
+	public synchronized void setCapacity(long capacity) {
+		this.capacity = capacity;
+		evict(capacity);
+	}
+	
+	/**
+	 * Evicts results of lowest priority until half of the current weight is left 
+	 */
+	public synchronized void shed() {
+		evict(weight / 2);
+	}
+	
+	/**
+	 * Returns estimated size of all results in bytes 
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+	
+	/**
+	 * Makes the cache shed results when a heap pool is above {@code HEAP_THRESHOLD} of its maximum size.
+	 * Pools are checked after collections where supported, so that garbage waiting for a collection
+	 * does not count as pressure. Thresholds and the listener are set up once for all caches 
+	 */
+	public void watchHeap() {
+		synchronized(WATCHED) {
+			WATCHED.add(this);
+			if(listening) return;
+			listening = true;
+		}
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			long max = pool.getUsage().getMax();
+			if(pool.getType() != MemoryType.HEAP || max <= 0) continue;
+			if(pool.isCollectionUsageThresholdSupported()) pool.setCollectionUsageThreshold((long) (max * HEAP_THRESHOLD));
+			else if(pool.isUsageThresholdSupported()) pool.setUsageThreshold((long) (max * HEAP_THRESHOLD));
+		}
+		NotificationEmitter emitter = (NotificationEmitter) ManagementFactory.getMemoryMXBean();
+		emitter.addNotificationListener((notification, handback) -> {
+			String type = notification.getType();
+			if(!type.equals(MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED)
+					&& !type.equals(MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED)) return;
+			List<ResultCache> caches;
+			synchronized(WATCHED) {
+				caches = new ArrayList<>(WATCHED);
+			}
+			caches.forEach(ResultCache::shed);
+		}, null, null);
+	}
+}
@@ -1,9 +1,18 @@
 package edu.upenn.cit594.datamanagement;
 
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 
 /**
- * Data storage class to hold results of user input 
+ * Data storage class to hold results of user input. Safe to use from several threads: results are
+ * kept as futures in a concurrent map, so a result that is being computed is computed only once and
+ * other callers asking for the same input wait for it. Computed results are charged to a
+ * {@code ResultCache}, which evicts them when its budget is exceeded 
  * @author andrii podhornyi 
  *
  * @param <K> user input 
@@ -12,17 +21,59 @@ import java.util.HashMap;
 public class ResultHolder<K, V> {
 
 	/**
-	 * internal HashMap stores all results.
+	 * internal map stores results, complete or being computed.
 	 */
-	private HashMap<K, V> results = new HashMap<>();
+	private final ConcurrentHashMap<K, Result<V>> results = new ConcurrentHashMap<>();
+	
+	/**
+	 * Budget the results are charged to 
+	 */
+	private final ResultCache cache;
+	
+	/**
+	 * Estimates size of a result in bytes 
+	 */
+	private final ToLongFunction<? super V> weigher;
+	
+	private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+	
+	/**
+	 * Result of an input and its entry in the cache, set once the result is computed 
+	 */
+	private static final class Result<V> {
+		private final CompletableFuture<V> future;
+		private volatile ResultCache.Entry entry;
+		
+		private Result(CompletableFuture<V> future) {
+			this.future = future;
+		}
+	}
+	
+	/**
+	 * Creates holder that charges its results to given cache 
+	 * @param cache budget shared with other holders 
+	 * @param weigher estimates size of a result in bytes 
+	 */
+	public ResultHolder(ResultCache cache, ToLongFunction<? super V> weigher) {
+		this.cache = cache;
+		this.weigher = weigher;
+	}
+	
+	/**
+	 * Creates holder that keeps all its results 
+	 */
+	public ResultHolder() {
+		this(new ResultCache(Long.MAX_VALUE), value -> 1);
+	}
 	
 	/**
 	 * Checks if value for the given key exists in results 
 	 * @param key Key to search for 
-	 * @return true if value for given key exists, false otherwise 
+	 * @return true if value for given key is computed, false otherwise 
 	 */
 	public boolean contains(K key) {
-		return results.containsKey(key);
+		Result<V> result = results.get(key);
+		return result != null && result.future.isDone() && !result.future.isCompletedExceptionally();
 	}
 	
 	/**
@@ -31,15 +82,111 @@ public class ResultHolder<K, V> {
 	 * @param value result for input 
 	 */
 	public void put(K key, V value) {
-		results.put(key, value);
+		Result<V> result = new Result<>(CompletableFuture.completedFuture(value));
+		Result<V> previous = results.put(key, result);
+		if(previous != null) forget(previous);
+		admit(key, result, value, 0);
 	}
 	
 	/**
 	 * Returns the value for the given key
 	 * @param key user input 
-	 * @return result of input if exists. Null otherwise 
+	 * @return result of input if it is computed. Null otherwise 
 	 */
 	public V get(K key) {
-		return results.get(key);
+		Result<V> result = results.get(key);
+		if(result == null || !result.future.isDone() || result.future.isCompletedExceptionally()) return null;
+		touch(result);
+		return result.future.getNow(null);
+	}
+	
+	/**
+	 * Returns the value for the given key, computing it if it is missing. If the value is being computed
+	 * by another thread, waits for it instead of computing it again. Failed computations are not kept 
+	 * @param key user input 
+	 * @param compute function that computes result of input 
+	 * @return result of input 
+	 * @throws java.util.concurrent.CompletionException if the computation of another thread failed 
+	 */
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> compute) {
+		Result<V> result = results.get(key);
+		if(result == null) {
+			Result<V> created = new Result<>(new CompletableFuture<>());
+			result = results.putIfAbsent(key, created);
+			
+			// this thread won the key and computes the result 
+			if(result == null) {
+				misses.increment();
+				long start = System.nanoTime();
+				try {
+					V value = compute.apply(key);
+					created.future.complete(value);
+					admit(key, created, value, System.nanoTime() - start);
+					return value;
+				} catch (RuntimeException | Error e) {
+					results.remove(key, created);
+					created.future.completeExceptionally(e);
+					throw e;
+				}
+			}
+		}
+		hits.increment();
+		touch(result);
+		return result.future.join();
+	}
+	
+	/**
+	 * Removes results of all keys that match the filter. Results being computed are removed as well,
+	 * so the next request computes them again 
+	 * @param filter returns true for keys to be removed 
+	 */
+	public void removeIf(Predicate<K> filter) {
+		for(Map.Entry<K, Result<V>> entry : results.entrySet()) {
+			if(filter.test(entry.getKey()) && results.remove(entry.getKey(), entry.getValue())) forget(entry.getValue());
+		}
+	}
+	
+	/**
+	 * Returns number of requests answered by a result that was computed or being computed 
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	/**
+	 * Returns number of requests that computed their result 
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+	
+	/**
+	 * Returns number of results evicted by the cache 
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+	
+	/**
+	 * Charges computed result to the cache. Evicting the result removes it from the map 
+	 * @param cost time it took to compute the result in nanoseconds 
+	 */
+	private void admit(K key, Result<V> result, V value, long cost) {
+		result.entry = cache.add(weigher.applyAsLong(value), cost, () -> {
+			if(results.remove(key, result)) evictions.increment();
+		});
+		
+		// result may have been removed before it got its entry 
+		if(results.get(key) != result) forget(result);
+	}
+	
+	private void touch(Result<V> result) {
+		ResultCache.Entry entry = result.entry;
+		if(entry != null) cache.touch(entry);
+	}
+	
+	private void forget(Result<V> result) {
+		ResultCache.Entry entry = result.entry;
+		if(entry != null) cache.remove(entry);
 	}
 }
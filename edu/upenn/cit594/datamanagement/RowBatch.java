@@ -0,0 +1,118 @@
+package edu.upenn.cit594.datamanagement;
+
+import java.util.Arrays;
+
+/**
+ * Batch of rows copied out of a {@code CSVLexer}, so they can be converted on other threads while the
+ * lexer reads the next rows. Only wanted fields are copied. The batch acts as {@code CSVRow} for the
+ * row selected by {@code select}
+ * @author andrii podhornyi
+ *
+ */
+class RowBatch implements CSVRow {
+
+	/**
+	 * Position of the batch in the file, batches are numbered from 0
+	 */
+	private final int sequence;
+
+	/**
+	 * Indexes of wanted fields and slot of each field index in a row, -1 for other fields
+	 */
+	private final int[] fields;
+	private final int[] slots;
+
+	/**
+	 * Chars of all copied fields and their ranges, one slot per wanted field per row. Missing fields are -1
+	 */
+	private char[] chars = new char[1 << 14];
+	private int length;
+	private final int[] starts, ends;
+
+	/**
+	 * Number of rows in the batch, maximum number of rows and the selected row
+	 */
+	private int size, row;
+	private final int capacity;
+
+	/**
+	 * Creates empty batch
+	 * @param sequence position of the batch in the file
+	 * @param capacity maximum number of rows
+	 * @param fields indexes of wanted fields
+	 */
+	RowBatch(int sequence, int capacity, int... fields) {
+		this.sequence = sequence;
+		this.capacity = capacity;
+		this.fields = fields;
+		int max = -1;
+		for(int field : fields) max = Math.max(max, field);
+		slots = new int[max + 1];
+		Arrays.fill(slots, -1);
+		for(int i = 0; i < fields.length; i++) slots[fields[i]] = i;
+		starts = new int[capacity * fields.length];
+		ends = new int[capacity * fields.length];
+	}
+
+	int getSequence() {
+		return sequence;
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isFull() {
+		return size == capacity;
+	}
+
+	/**
+	 * Copies wanted fields of the current row of the lexer
+	 * @param lexer lexer holding the row
+	 */
+	void add(CSVLexer lexer) {
+		int base = size * fields.length;
+		char[] source = lexer.getChars();
+		for(int i = 0; i < fields.length; i++) {
+			if(!lexer.hasField(fields[i])) {
+				starts[base + i] = ends[base + i] = -1;
+				continue;
+			}
+			int from = lexer.getFieldStart(fields[i]), count = lexer.getFieldEnd(fields[i]) - from;
+			if(length + count > chars.length) chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + count));
+			System.arraycopy(source, from, chars, length, count);
+			starts[base + i] = length;
+			length += count;
+			ends[base + i] = length;
+		}
+		size++;
+	}
+
+	/**
+	 * Selects the row returned by the {@code CSVRow} methods
+	 * @param row index of the row in the batch
+	 */
+	void select(int row) {
+		this.row = row;
+	}
+
+	@Override
+	public boolean hasField(int index) {
+		return index >= 0 && index < slots.length && slots[index] >= 0 && starts[row * fields.length + slots[index]] >= 0;
+	}
+
+	@Override
+	public char[] getChars() {
+		return chars;
+	}
+
+	@Override
+	public int getFieldStart(int index) {
+		return starts[row * fields.length + slots[index]];
+	}
+
+	@Override
+	public int getFieldEnd(int index) {
+		return ends[row * fields.length + slots[index]];
+	}
+}
@@ -0,0 +1,297 @@
+package edu.upenn.cit594.datamanagement;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.upenn.cit594.util.CovidStore;
+import edu.upenn.cit594.util.PopulationData;
+import edu.upenn.cit594.util.PropertyStore;
+
+/**
+ * Binary snapshots of parsed data sets. Each snapshot is stored next to its input file as
+ * {@code <input>.snapshot} and holds the parsed rows as primitive columns. The header records path,
+ * size and modification time of the input, so a snapshot of a changed file is treated as missing
+ * and rebuilt by the parser. Snapshots are read through memory-mapped I/O.
+ * @author andrii podhornyi
+ *
+ */
+public class SnapshotCache {
+
+	private static final int MAGIC = 0x43495435;
+	private static final int VERSION = 3;
+
+	/**
+	 * Kinds of data sets stored in snapshots. Covid data of a followed file holds only complete
+	 * records, so it is a kind of its own
+	 */
+	private static final int COVID = 1, POPULATION = 2, PROPERTY = 3, FOLLOWED_COVID = 4;
+
+	/**
+	 * Covid data loaded from a snapshot, with the offset right after the last record it holds
+	 */
+	public static final class CovidSnapshot {
+		public final CovidStore data;
+		public final long end;
+
+		private CovidSnapshot(CovidStore data, long end) {
+			this.data = data;
+			this.end = end;
+		}
+	}
+
+	private SnapshotCache() {}
+
+	/**
+	 * Loads covid data from the snapshot of given file
+	 * @param filename name of the input file
+	 * @param followed true if the file is followed and the snapshot should hold only complete records
+	 * @return covid records with the end of the last of them, or null if snapshot is missing or stale
+	 * @throws IOException may be thrown by internal channel
+	 */
+	public static CovidSnapshot loadCovid(String filename, boolean followed) throws IOException {
+		ByteBuffer buffer = open(filename, followed ? FOLLOWED_COVID : COVID);
+		if(buffer == null || buffer.remaining() < Long.BYTES) return null;
+		long end = buffer.getLong();
+		if(!hasColumns(buffer, 4 * Integer.BYTES)) return null;
+		int rows = buffer.getInt();
+		int[] dates = getInts(buffer, rows), zips = getInts(buffer, rows);
+		int[] partial = getInts(buffer, rows), full = getInts(buffer, rows);
+		return new CovidSnapshot(new CovidStore(zips, dates, partial, full), end);
+	}
+
+	/**
+	 * Stores covid data in the snapshot of given file
+	 * @param filename name of the input file
+	 * @param key key of the input file taken before it was parsed
+	 * @param data parsed data
+	 * @param end offset right after the last parsed byte
+	 * @param followed true if the data holds only complete records of a followed file
+	 * @throws IOException may be thrown by internal channel
+	 */
+	public static void storeCovid(String filename, byte[] key, CovidStore data, long end, boolean followed) throws IOException {
+		int rows = data.size();
+		MappedByteBuffer buffer = create(filename, key, followed ? FOLLOWED_COVID : COVID, Long.BYTES + Integer.BYTES + 4L * Integer.BYTES * rows);
+		if(buffer == null) return;
+		buffer.putLong(end);
+		buffer.putInt(rows);
+		for(int i = 0; i < rows; i++) buffer.putInt(data.getDate(i));
+		for(int i = 0; i < rows; i++) buffer.putInt(data.getZipCode(i));
+		for(int i = 0; i < rows; i++) buffer.putInt(data.getPartiallyVaccinated(i));
+		for(int i = 0; i < rows; i++) buffer.putInt(data.getFullyVaccinated(i));
+		commit(filename, buffer);
+	}
+
+	/**
+	 * Loads population data from the snapshot of given file
+	 * @param filename name of the input file
+	 * @return list of PopulationData objects, or null if snapshot is missing or stale
+	 * @throws IOException may be thrown by internal channel
+	 */
+	public static List<PopulationData> loadPopulation(String filename) throws IOException {
+		ByteBuffer buffer = open(filename, POPULATION);
+		if(buffer == null || !hasColumns(buffer, 2 * Integer.BYTES)) return null;
+		int rows = buffer.getInt();
+		int[] zips = getInts(buffer, rows), populations = getInts(buffer, rows);
+
+		ArrayList<PopulationData> data = new ArrayList<>(rows);
+		for(int i = 0; i < rows; i++) data.add(new PopulationData(zips[i], populations[i]));
+		return data;
+	}
+
+	/**
+	 * Stores population data in the snapshot of given file
+	 * @param filename name of the input file
+	 * @param key key of the input file taken before it was parsed
+	 * @param data parsed data
+	 * @throws IOException may be thrown by internal channel
+	 */
+	public static void storePopulation(String filename, byte[] key, List<PopulationData> data) throws IOException {
+		int rows = data.size();
+		MappedByteBuffer buffer = create(filename, key, POPULATION, Integer.BYTES + 2L * Integer.BYTES * rows);
+		if(buffer == null) return;
+		buffer.putInt(rows);
+		for(PopulationData row : data) buffer.putInt(row.getZipCode());
+		for(PopulationData row : data) buffer.putInt(row.getPopulation());
+		commit(filename, buffer);
+	}
+
+	/**
+	 * Loads property data from the snapshot of given file. Missing values are stored as NaN, so
+	 * columns are loaded into the store as they are
+	 * @param filename name of the input file
+	 * @return store of properties, or null if snapshot is missing or stale
+	 * @throws IOException may be thrown by internal channel
+	 */
+	public static PropertyStore loadProperties(String filename) throws IOException {
+		ByteBuffer buffer = open(filename, PROPERTY);
+		if(buffer == null || !hasColumns(buffer, Integer.BYTES + 2 * Double.BYTES)) return null;
+		int rows = buffer.getInt();
+		int[] zips = getInts(buffer, rows);
+		double[] marketValues = getDoubles(buffer, rows), livableAreas = getDoubles(buffer, rows);
+		return new PropertyStore(zips, marketValues, livableAreas);
+	}
+
+	/**
+	 * Stores property data in the snapshot of given file
+	 * @param filename name of the input file
+	 * @param key key of the input file taken before it was parsed
+	 * @param data parsed data
+	 * @throws IOException may be thrown by internal channel
+	 */
+	public static void storeProperties(String filename, byte[] key, PropertyStore data) throws IOException {
+		int rows = data.size();
+		MappedByteBuffer buffer = create(filename, key, PROPERTY, Integer.BYTES + (long) (Integer.BYTES + 2 * Double.BYTES) * rows);
+		if(buffer == null) return;
+		buffer.putInt(rows);
+		for(int i = 0; i < rows; i++) buffer.putInt(data.getZipCode(i));
+		for(int i = 0; i < rows; i++) buffer.putDouble(data.getMarketValue(i));
+		for(int i = 0; i < rows; i++) buffer.putDouble(data.getTotalLivableArea(i));
+		commit(filename, buffer);
+	}
+
+	/**
+	 * Maps the snapshot of given file and checks its header against the input file
+	 * @param filename name of the input file
+	 * @param kind expected kind of data set
+	 * @return buffer positioned after the header, or null if snapshot is missing or stale
+	 * @throws IOException may be thrown by internal channel
+	 */
+	private static ByteBuffer open(String filename, int kind) throws IOException {
+		Path input = Path.of(filename).toAbsolutePath();
+		MappedByteBuffer buffer;
+		try(FileChannel channel = FileChannel.open(snapshotPath(input), StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		byte[] key = key(input, Files.size(input));
+
+		// snapshot is stale if it was written by other version or for other input
+		if(buffer.remaining() < 4 * Integer.BYTES + key.length) return null;
+		if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != kind) return null;
+		if(buffer.getInt() != key.length) return null;
+		byte[] stored = new byte[key.length];
+		buffer.get(stored);
+		if(!Arrays.equals(stored, key)) return null;
+		return buffer;
+	}
+
+	/**
+	 * Creates temporary snapshot of given size with header for given file. Snapshot should be
+	 * filled and then committed
+	 * @param filename name of the input file
+	 * @param key key of the input file taken before it was parsed
+	 * @param kind kind of data set
+	 * @param size size of the data after the header
+	 * @return buffer positioned after the header, or null if snapshot can not be created
+	 * @throws IOException may be thrown while removing the temporary snapshot
+	 */
+	private static MappedByteBuffer create(String filename, byte[] key, int kind, long size) throws IOException {
+		Path input = Path.of(filename).toAbsolutePath();
+		long total = 4L * Integer.BYTES + key.length + size;
+		if(total > Integer.MAX_VALUE) return null;
+
+		// snapshots are optional, directory that can not be written to simply has none
+		MappedByteBuffer buffer;
+		try(FileChannel channel = FileChannel.open(temporaryPath(input), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, total);
+		} catch (IOException e) {
+			Files.deleteIfExists(temporaryPath(input));
+			return null;
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(kind);
+		buffer.putInt(key.length);
+		buffer.put(key);
+		return buffer;
+	}
+
+	/**
+	 * Replaces snapshot of given file with the filled temporary snapshot. The snapshot is written to
+	 * the disk first, so a crash can not leave a valid header over data that was never written
+	 * @param filename name of the input file
+	 * @param buffer filled temporary snapshot
+	 * @throws IOException may be thrown while removing the temporary snapshot
+	 */
+	private static void commit(String filename, MappedByteBuffer buffer) throws IOException {
+		Path input = Path.of(filename).toAbsolutePath();
+		try {
+			buffer.force();
+			Files.move(temporaryPath(input), snapshotPath(input), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			Files.deleteIfExists(temporaryPath(input));
+		}
+	}
+
+	/**
+	 * Checks that the row count is not negative and the snapshot is large enough for it. Truncated or
+	 * damaged snapshots are treated as stale
+	 * @param buffer buffer positioned at the row count
+	 * @param rowSize number of bytes per row in all columns together
+	 * @return true if buffer holds all columns
+	 */
+	private static boolean hasColumns(ByteBuffer buffer, int rowSize) {
+		if(buffer.remaining() < Integer.BYTES) return false;
+		int rows = buffer.getInt(buffer.position());
+		return rows >= 0 && buffer.remaining() - Integer.BYTES >= (long) rows * rowSize;
+	}
+
+	/**
+	 * Builds the key of given file from its path, size and modification time. Parsers take the key
+	 * before they read the file, so a file that changes while it is parsed leaves a stale snapshot
+	 * @param filename name of the input file
+	 * @param size size of the file, read before the key is taken
+	 * @return key of the file
+	 * @throws IOException may be thrown while reading attributes of the file
+	 */
+	public static byte[] key(String filename, long size) throws IOException {
+		return key(Path.of(filename).toAbsolutePath(), size);
+	}
+
+	/**
+	 * Builds the key from the size read by the caller and the modification time read afterwards, so a
+	 * change in between makes the key disagree with the file
+	 */
+	private static byte[] key(Path input, long size) throws IOException {
+		String key = input + "\n" + size + "\n" + Files.getLastModifiedTime(input).toMillis();
+		return key.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static Path snapshotPath(Path input) {
+		return input.resolveSibling(input.getFileName() + ".snapshot");
+	}
+
+	private static Path temporaryPath(Path input) {
+		return input.resolveSibling(input.getFileName() + ".snapshot.tmp");
+	}
+
+	private static int[] getInts(ByteBuffer buffer, int count) {
+		int[] values = new int[count];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + count * Integer.BYTES);
+		return values;
+	}
+
+	private static double[] getDoubles(ByteBuffer buffer, int count) {
+		double[] values = new double[count];
+		buffer.asDoubleBuffer().get(values);
+		buffer.position(buffer.position() + count * Double.BYTES);
+		return values;
+	}
+}
@@ -25,7 +25,7 @@ public class Logger {
 	 * @param filename name of file to write to 
 	 * @throws IOException may be thrown by internal writer 
 	 */
-	public void setPath(String filename) throws IOException {
+	public synchronized void setPath(String filename) throws IOException {
 		if(writer != null) writer.close();
 		if(filename == null) writer = null;
 		else writer = new FileWriter(filename, true);
@@ -33,11 +33,12 @@ public class Logger {
 	
 	/**
 	 * Logs event to provided file. Use {@code setPath} to set the destination file.
-	 * Otherwise all log events are written to System.err
+	 * Otherwise all log events are written to System.err.
+	 * Safe to call from several threads, events are written one at a time
 	 * @param text String to be written as log event 
 	 * @throws IOException may be thrown by internal writer 
 	 */
-	public void log(String text) throws IOException {
+	public synchronized void log(String text) throws IOException {
 		
 		// add current time of event 
 		String timedValue = System.currentTimeMillis() + " " + text + '\n'; 
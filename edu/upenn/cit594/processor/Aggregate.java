@@ -0,0 +1,11 @@
+package edu.upenn.cit594.processor;
+
+/**
+ * Aggregates of a query. Missing values are left out of all of them, so AVG is the sum of present
+ * values divided by their number 
+ * @author andrii podhornyi 
+ *
+ */
+public enum Aggregate {
+	SUM, COUNT, AVG, MIN, MAX
+}
@@ -0,0 +1,31 @@
+package edu.upenn.cit594.processor;
+
+import edu.upenn.cit594.util.PropertyRecord;
+
+/**
+ * Selector that returns values as primitives. Missing values are NaN and are told apart by
+ * {@code isValid}, so aggregation loops neither box nor unbox. Works on property objects as well as
+ * on cursors over columnar stores 
+ * @author andrii podhornyi 
+ *
+ */
+public interface DoubleSelector extends Selector {
+	
+	/**
+	 * Returns selected value of the property, NaN if it is missing 
+	 */
+	public double getDouble(PropertyRecord data);
+	
+	/**
+	 * Checks if a value returned by {@code getDouble} should be aggregated 
+	 */
+	public default boolean isValid(double value) {
+		return !Double.isNaN(value);
+	}
+	
+	@Override
+	public default Double getData(PropertyRecord data) {
+		double value = getDouble(data);
+		return isValid(value) ? value : null;
+	}
+}
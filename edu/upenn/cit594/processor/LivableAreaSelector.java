@@ -1,12 +1,18 @@
 package edu.upenn.cit594.processor;
 
-import edu.upenn.cit594.util.PropertyData;
+import edu.upenn.cit594.util.PropertyColumn;
+import edu.upenn.cit594.util.PropertyRecord;
 
-public class LivableAreaSelector implements Selector {
+public class LivableAreaSelector implements DoubleSelector {
 
 	@Override
-	public Double getData(PropertyData data) {
-		return data.getTotalLivableArea();
+	public double getDouble(PropertyRecord data) {
+		return data.totalLivableArea();
+	}
+
+	@Override
+	public PropertyColumn getColumn() {
+		return PropertyColumn.LIVABLE_AREA;
 	}
 
 }
@@ -1,12 +1,18 @@
 package edu.upenn.cit594.processor;
 
-import edu.upenn.cit594.util.PropertyData;
+import edu.upenn.cit594.util.PropertyColumn;
+import edu.upenn.cit594.util.PropertyRecord;
 
-public class MarketValueSelector implements Selector {
+public class MarketValueSelector implements DoubleSelector {
 
 	@Override
-	public Double getData(PropertyData data) {
-		return data.getMarketValue();
+	public double getDouble(PropertyRecord data) {
+		return data.marketValue();
+	}
+
+	@Override
+	public PropertyColumn getColumn() {
+		return PropertyColumn.MARKET_VALUE;
 	}
 
 }
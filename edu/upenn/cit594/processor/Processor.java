@@ -1,24 +1,48 @@
 package edu.upenn.cit594.processor;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 import edu.upenn.cit594.datamanagement.ArgumentStorage;
 import edu.upenn.cit594.datamanagement.CovidParser;
 import edu.upenn.cit594.datamanagement.PopulationParser;
 import edu.upenn.cit594.datamanagement.PropertyParser;
 import edu.upenn.cit594.datamanagement.ResultHolder;
-import edu.upenn.cit594.util.CovidData;
-import edu.upenn.cit594.util.PopulationData;
-import edu.upenn.cit594.util.PropertyData;
+import edu.upenn.cit594.logging.Logger;
+import edu.upenn.cit594.util.CovidStore;
+import edu.upenn.cit594.util.ParallelAggregator;
+import edu.upenn.cit594.util.PopulationTable;
+import edu.upenn.cit594.util.PropertyColumn;
+import edu.upenn.cit594.util.PropertyCursor;
+import edu.upenn.cit594.util.PropertyTable;
 import edu.upenn.cit594.util.UserRequestResults;
+import edu.upenn.cit594.util.VaccinationMatrix;
+import edu.upenn.cit594.util.VaccinationSeries;
+import edu.upenn.cit594.util.ZipIndex;
 
 /**
- * Logic tier 
+ * Logic tier. Safe to share between threads: loaded data sets are read-only except covid data, which is
+ * guarded by a read-write lock, and memoized results are computed once per input even if several
+ * threads ask for them at the same time 
  * @author andrii podhornyi
  * @author adam hebert
  *
@@ -26,35 +50,389 @@ import edu.upenn.cit594.util.UserRequestResults;
 public class Processor {
 
 	/**
-	 * References to data holders 
+	 * Data sets being loaded. Each future is null if its data file is not provided 
 	 */
-	private List<CovidData> covidData;
-	private List<PropertyData> propertyData;
-	private List<PopulationData> populationData;
+	private CompletableFuture<VaccinationMatrix> covidLoad;
+	private CompletableFuture<PropertyTable> propertyLoad;
+	private CompletableFuture<PopulationTable> populationLoad;
 	private Set<String> arguments;
+	
+	/**
+	 * Parser of the covid file, kept to read records appended to the file 
+	 */
+	private CovidParser covidParser;
+	
+	/**
+	 * Names of arguments that represent data sets 
+	 */
+	private static final Set<String> DATA_SETS = Set.of("covid", "population", "properties");
 
 	/**
-	 * Util class to hold memoization results 
+	 * Aggregator of scans that are not answered by precomputed aggregates 
+	 */
+	private volatile ParallelAggregator aggregator = new ParallelAggregator(1);
+	
+	/**
+	 * Queries of covid data hold the read lock, merging of appended records holds the write lock 
 	 */
-	private UserRequestResults requestResults = new UserRequestResults();
+	private final ReadWriteLock covidLock = new ReentrantReadWriteLock();
 
 	/**
-	 * Result holder for totalPopulationForAllZipCodes
+	 * Util class to hold memoization results 
 	 */
-	private Long populationResult;
+	private final UserRequestResults requestResults = new UserRequestResults();
+	
+	/**
+	 * Engine that answers queries of all data sets, each waiting only for its data set 
+	 */
+	private final QueryEngine engine = new QueryEngine(this::propertyData, this::populationData, this::covidData, () -> aggregator);
 
 	/**
-	 * Intermediate data used to search for values in populations
+	 * Key of the total population in its result holder 
 	 */
-	private Map<Integer, Integer> zipCodePopulations;
+	private static final String ALL_ZIP_CODES = "all";
+	
+	/**
+	 * Number of foreground queries in progress. Warm-up pauses while there are any 
+	 */
+	private final AtomicInteger foregroundQueries = new AtomicInteger();
+	
+	/**
+	 * Signalled by the last foreground query in progress once it finishes 
+	 */
+	private final Lock idleLock = new ReentrantLock();
+	private final Condition idle = idleLock.newCondition();
+	
+	/**
+	 * Threads that precompute results, their queries are not counted as foreground ones 
+	 */
+	private final Set<Thread> warmUpThreads = ConcurrentHashMap.newKeySet();
 
 	
+	/**
+	 * Starts loading of all provided data sets at the same time and returns without waiting for them.
+	 * Each query waits only for the data sets it uses. If a data set fails to load, the failure is
+	 * thrown as unchecked {@code CompletionException} by the first query that uses it 
+	 */
 	public Processor(CovidParser covidParser, PopulationParser populationParser,
 			PropertyParser propertyParser, ArgumentStorage arguments) throws Exception {
-		if(covidParser != null) covidData = covidParser.getCovidData();
-		if(populationParser != null) populationData = populationParser.getPopulationData();
-		if(propertyParser != null) propertyData = propertyParser.getPropertyData();
+		
+		// loader threads are daemons, so a query that is never asked does not keep the program alive 
+		ExecutorService loaders = Executors.newFixedThreadPool(3, daemon("data-set-loader"));
+		
+		// all data sets are arranged by zip code right after they are loaded 
+		if(covidParser != null) covidLoad = load(() -> new VaccinationMatrix(covidParser.getCovidData()), loaders);
+		if(populationParser != null) populationLoad = load(() -> new PopulationTable(populationParser.getPopulationData()), loaders);
+		if(propertyParser != null) propertyLoad = load(propertyParser::getPropertyTable, loaders);
+		
+		// submitted loads still run after shutdown, the threads exit once they are done 
+		loaders.shutdown();
+		this.covidParser = covidParser;
 		this.arguments = arguments.getArguments();
+		
+		// past results are dropped before the heap runs out 
+		requestResults.cache.watchHeap();
+	}
+	
+	/**
+	 * Creates factory of daemon threads with given name 
+	 */
+	private static ThreadFactory daemon(String name) {
+		return task -> {
+			Thread thread = new Thread(task, name);
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+	
+	/**
+	 * Sets memory budget of past results. Results that are cheap to compute for their size are evicted first 
+	 * @param bytes budget in bytes 
+	 */
+	public void setCacheCapacity(long bytes) {
+		requestResults.cache.setCapacity(bytes);
+	}
+	
+	/**
+	 * Returns hit, miss and eviction counters of past results 
+	 */
+	public String getCacheStatistics() {
+		return requestResults.getStatistics();
+	}
+	
+	/**
+	 * Lets large scans run on given number of threads. Results do not depend on the number of threads 
+	 * @param threads number of threads, 1 to scan on the calling thread 
+	 */
+	public void setThreads(int threads) {
+		aggregator.shutdown();
+		aggregator = new ParallelAggregator(threads);
+	}
+	
+	/**
+	 * Starts following the covid file. Records appended to the file are merged into covid data
+	 * every given number of seconds 
+	 * @param seconds delay between checks of the file 
+	 */
+	public void watchCovidData(long seconds) {
+		if(covidLoad == null) return;
+		ScheduledExecutorService watcher = Executors.newSingleThreadScheduledExecutor(daemon("covid-watcher"));
+		watcher.scheduleWithFixedDelay(this::refreshCovidData, seconds, seconds, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * Starts computing results of per-zip queries for every zip code of the property and population
+	 * data sets on background threads, once the data sets are loaded. Results land in the same
+	 * holders as results of user queries. Each zip code (and date) is a task, tasks are shared by
+	 * one low priority thread per core but one. Warm-up does not start a result while any foreground
+	 * query is in progress, so user queries never queue behind it. Its threads are its own, a scan
+	 * of a user query never waits for a pool blocked by warm-up 
+	 * @param dates true to also compute results of covid queries for every date of the covid data set 
+	 * @return future completed once all results are computed 
+	 */
+	public CompletableFuture<Void> warmUp(boolean dates) {
+		CompletableFuture<Void> done = new CompletableFuture<>();
+		Thread planner = daemon("result-warm-up").newThread(() -> {
+			try {
+				runWarmUp(warmUpTasks(dates), done);
+			} catch (Exception e) {
+				failWarmUp(done, e);
+			}
+		});
+		planner.start();
+		return done;
+	}
+	
+	/**
+	 * Lists tasks of warm-up, waiting for data sets it needs 
+	 */
+	private List<Runnable> warmUpTasks(boolean dates) {
+		TreeSet<Integer> zipCodes = new TreeSet<>();
+		if(propertyLoad != null) addZipCodes(zipCodes, propertyData().getIndex());
+		if(populationLoad != null) addZipCodes(zipCodes, populationData().getIndex());
+		List<Runnable> tasks = new ArrayList<>();
+		if(populationLoad != null) tasks.add(() -> warmUp(this::getTotalPopulationForAllZipCodes));
+		for(int zipCode : zipCodes) {
+			tasks.add(() -> {
+				warmUp(() -> getAverageMarketValue(zipCode));
+				warmUp(() -> getAverageTotalLivableArea(zipCode));
+				warmUp(() -> getMarketValuePerCapita(zipCode));
+			});
+		}
+		
+		// dates of records merged after this point are computed on request 
+		int[] dateKeys = dates && covidLoad != null ? readCovidData(() -> covidData().getDates()) : new int[0];
+		for(int dateKey : dateKeys) {
+			String date = CovidStore.formatDate(dateKey);
+			tasks.add(() -> {
+				warmUp(() -> getPartialOrFullVaccinationsPerCapita(true, date));
+				warmUp(() -> getPartialOrFullVaccinationsPerCapita(false, date));
+				for(int zipCode : zipCodes) warmUp(() -> getLivableSpacePerUnvaccinatedPerson(zipCode, date));
+			});
+		}
+		return tasks;
+	}
+	
+	/**
+	 * Runs tasks of warm-up on its threads, each thread takes the next task that is not taken yet 
+	 */
+	private void runWarmUp(List<Runnable> tasks, CompletableFuture<Void> done) {
+		if(tasks.isEmpty()) {
+			done.complete(null);
+			return;
+		}
+		int threads = Math.max(1, Math.min(tasks.size(), Runtime.getRuntime().availableProcessors() - 1));
+		AtomicInteger next = new AtomicInteger(), running = new AtomicInteger(threads);
+		for(int t = 0; t < threads; t++) {
+			Thread thread = daemon("result-warm-up").newThread(() -> {
+				warmUpThreads.add(Thread.currentThread());
+				try {
+					for(int task = next.getAndIncrement(); task < tasks.size() && !done.isDone(); task = next.getAndIncrement()) {
+						tasks.get(task).run();
+					}
+					if(running.decrementAndGet() == 0) done.complete(null);
+				} catch (Exception e) {
+					failWarmUp(done, e);
+				} finally {
+					warmUpThreads.remove(Thread.currentThread());
+				}
+			});
+			thread.setPriority(Thread.MIN_PRIORITY);
+			thread.start();
+		}
+	}
+	
+	private static void failWarmUp(CompletableFuture<Void> done, Exception e) {
+		if(!done.completeExceptionally(e)) return;
+		try {
+			Logger.getLoggerInstance().log("result warm-up failed: " + e);
+		} catch (Exception ignored) {}
+	}
+	
+	private static void addZipCodes(Set<Integer> zipCodes, ZipIndex index) {
+		for(int slot = 0; slot < index.size(); slot++) zipCodes.add(index.getZipCode(slot));
+	}
+	
+	/**
+	 * Computes a single result of warm-up once no foreground query is in progress 
+	 */
+	private void warmUp(Runnable query) {
+		if(foregroundQueries.get() > 0) {
+			idleLock.lock();
+			try {
+				while(foregroundQueries.get() > 0) idle.awaitUninterruptibly();
+			} finally {
+				idleLock.unlock();
+			}
+		}
+		query.run();
+	}
+	
+	/**
+	 * Runs a query of the user. Warm-up does not start new results while it runs, the last query
+	 * in progress wakes warm-up up once it finishes 
+	 */
+	private <T> T foreground(Supplier<T> query) {
+		if(warmUpThreads.contains(Thread.currentThread())) return query.get();
+		foregroundQueries.incrementAndGet();
+		try {
+			return query.get();
+		} finally {
+			if(foregroundQueries.decrementAndGet() == 0) {
+				idleLock.lock();
+				try {
+					idle.signalAll();
+				} finally {
+					idleLock.unlock();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Merges records appended to the covid file into covid data. Memoized results are dropped only
+	 * for dates that got new records. Failures are logged and the file is checked again next time 
+	 */
+	void refreshCovidData() {
+		try {
+			
+			// waiting for the load also makes the offset of the initial parse visible 
+			VaccinationMatrix data = covidData();
+			CovidStore appended = covidParser.getAppendedData();
+			if(appended.size() == 0) return;
+			
+			// both keys end with the requested date 
+			Set<String> dates = new HashSet<>();
+			for(int i = 0; i < appended.size(); i++) dates.add(CovidStore.formatDate(appended.getDate(i)));
+			
+			// queries in progress finish on the old data, their results are dropped with the others 
+			covidLock.writeLock().lock();
+			try {
+				data.addAll(appended);
+				requestResults.getPartialOrFullVaccinationsPerCapita.removeIf(key -> dates.contains(dateOf(key)));
+				requestResults.getlivableSpacePerUnvaccinatedPerson.removeIf(key -> dates.contains(dateOf(key)));
+			} finally {
+				covidLock.writeLock().unlock();
+			}
+		} catch (Exception e) {
+			try {
+				Logger.getLoggerInstance().log("covid watch failed: " + e);
+			} catch (Exception ignored) {}
+		}
+	}
+	
+	/**
+	 * Returns the YYYY-MM-DD date at the end of a memoization key 
+	 */
+	private static String dateOf(String key) {
+		return key.length() < 10 ? key : key.substring(key.length() - 10);
+	}
+	
+	/**
+	 * Runs loader of a data set on given executor 
+	 * @param loader parser method that returns the data set 
+	 * @param executor executor to run the loader on 
+	 * @return future completed with the data set or with the exception thrown by the loader 
+	 */
+	private static <T> CompletableFuture<T> load(Callable<T> loader, ExecutorService executor) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		executor.execute(() -> {
+			try {
+				future.complete(loader.call());
+			} catch (Exception e) {
+				future.completeExceptionally(e);
+			}
+		});
+		return future;
+	}
+	
+	/**
+	 * Runs a query that reads covid data. Queries run at the same time, appended records are merged
+	 * only between them. The lock is taken before results are looked up, so a query never waits for a
+	 * result while the watcher waits for the lock 
+	 */
+	private <T> T readCovidData(Supplier<T> query) {
+		return foreground(() -> {
+			covidLock.readLock().lock();
+			try {
+				return query.get();
+			} finally {
+				covidLock.readLock().unlock();
+			}
+		});
+	}
+	
+	/**
+	 * Runs a query over the data set of its column. Queries of covid data run under the read lock 
+	 * @param query query to run 
+	 * @return groups of the result, null if the data file is not provided 
+	 */
+	public QueryResult query(Query query) {
+		switch(query.getColumn().getSource()) {
+		case PROPERTIES:
+			return propertyLoad == null ? null : foreground(() -> engine.execute(query));
+		case POPULATION:
+			return populationLoad == null ? null : foreground(() -> engine.execute(query));
+		default:
+			return covidLoad == null ? null : readCovidData(() -> engine.execute(query));
+		}
+	}
+	
+	/**
+	 * Returns aggregate of a column over properties or population of a single zip code. The query is
+	 * grouped by zip code, so precomputed aggregates of the zip code are read as they are 
+	 * @return value of the zip code, 0 if it has no values 
+	 */
+	private double aggregateOf(Aggregate aggregate, QueryColumn column, int zipCode) {
+		Query query = new Query(aggregate, column);
+		query.setZipCodes(zipCode, zipCode);
+		query.setGroupByZipCode(true);
+		return engine.execute(query).getValueOrDefault(zipCode, QueryResult.ALL, 0);
+	}
+	
+	/**
+	 * Returns aggregate of a column over zip codes in given range 
+	 * @return groups of the result, with the single group of the range 
+	 */
+	private QueryResult aggregateOf(Aggregate aggregate, QueryColumn column, int from, int to) {
+		Query query = new Query(aggregate, column);
+		query.setZipCodes(from, to);
+		return engine.execute(query);
+	}
+	
+	/*
+	 * -----------Data sets, block until loaded--------------------
+	 */
+	private VaccinationMatrix covidData() {
+		return covidLoad.join();
+	}
+	
+	private PopulationTable populationData() {
+		return populationLoad.join();
+	}
+	
+	private PropertyTable propertyData() {
+		return propertyLoad.join();
 	}
 
 	
@@ -67,7 +445,7 @@ public class Processor {
 	public TreeSet<String> getAvailableDataSets(){
 		TreeSet<String> availableDataSets = new TreeSet<String>();
 		for(String argument : arguments) {
-			if(!argument.equals("log")) {
+			if(DATA_SETS.contains(argument)) {
 				availableDataSets.add(argument);
 			}
 		}
@@ -75,21 +453,15 @@ public class Processor {
 	}
 
 	/**
-	 * Gets the total population across all zipcodes in the data set, utilizing memoization
+	 * Gets the total population across all zipcodes in the data set, utilizing memoization.
+	 * Concurrent first callers wait for a single computation 
 	 * @author Adam Hebert
 	 * @param none
 	 * @return the total population across all zipcodes in the data set
 	 */
 	public Long getTotalPopulationForAllZipCodes() {
-		if(populationData == null) return null;
-		if (populationResult!=null) {
-			return populationResult;
-		}
-		else {
-			long result = calculateTotalPopulationForAllCodes();
-			populationResult = result;
-			return result;
-		}
+		if(populationLoad == null) return null;
+		return foreground(() -> requestResults.getTotalPopulation.computeIfAbsent(ALL_ZIP_CODES, all -> calculateTotalPopulationForAllCodes()));
 	}
 
 	/**
@@ -99,11 +471,7 @@ public class Processor {
 	 * @return the total population across all zipcodes in the data set
 	 */
 	private long calculateTotalPopulationForAllCodes() {
-		long totalPopulation = 0;
-		for(PopulationData zipCodePopulationData : populationData) {
-			totalPopulation += zipCodePopulationData.getPopulation();
-		}
-		return totalPopulation;
+		return (long) engine.execute(new Query(Aggregate.SUM, QueryColumn.POPULATION)).getSum(0);
 	}
 
 	
@@ -114,49 +482,51 @@ public class Processor {
 	 * @return the number of partial or full vaccinations per capita for each zip code on a given date
 	 */
 	public TreeMap<Integer, Double> getPartialOrFullVaccinationsPerCapita(boolean partial, String inputDate) {
-		if(covidData == null || populationData == null) return null;
+		if(covidLoad == null || populationLoad == null) return null;
 		String input = partial + inputDate;
-		if (requestResults.getPartialOrFullVaccinationsPerCapita.contains(input)){
-			return requestResults.getPartialOrFullVaccinationsPerCapita.get(input);
-		}
+		return readCovidData(() -> requestResults.getPartialOrFullVaccinationsPerCapita.computeIfAbsent(input,
+				key -> calculatePartialOrFullVaccinationsPerCapita(partial, inputDate)));
+	}
+	
+	/**
+	 * Calculates the number of partial or full vaccinations per capita for each zip code on a given date 
+	 */
+	private TreeMap<Integer, Double> calculatePartialOrFullVaccinationsPerCapita(boolean partial, String inputDate) {
 
-		if (zipCodePopulations == null) {
-			zipCodePopulations  = new HashMap<>();
-			for(PopulationData data: populationData) {
-				if(data.getPopulation() == 0) continue;
-				zipCodePopulations.put(data.getZipCode(), data.getPopulation());
-			}
-		}
+		// population of a zip code is taken from its last row with non-zero population 
+		PopulationTable populations = populationData();
 
 		TreeMap<Integer, Double> partialOrFullVaccinationsPerCapita = new TreeMap<>();
-
-		if(partial) {
-			for (CovidData data : covidData) {
-				int currPartiallyVaccinated = data.getPartiallyVaccinated();
-				int currZipCode = data.getZipCode();
-				String currDate = data.getDate();
-				if(currDate.equals(inputDate) && currPartiallyVaccinated != 0 && zipCodePopulations.containsKey(currZipCode)) {
-					double currPartialVaccinationsPerCapita = (double)currPartiallyVaccinated/zipCodePopulations.get(currZipCode);
-					partialOrFullVaccinationsPerCapita.put(currZipCode, currPartialVaccinationsPerCapita);
-				}
-			}
-		}
-		else {
-			for (CovidData data : covidData) {
-				int currFullyVaccinated = data.getFullyVaccinated();
-				int currZipCode = data.getZipCode();
-				String currDate = data.getDate();
-				if(currDate.equals(inputDate) && currFullyVaccinated != 0 && zipCodePopulations.containsKey(currZipCode)) {
-					double currFullVaccinationsPerCapita = (double)currFullyVaccinated/zipCodePopulations.get(currZipCode);
-					partialOrFullVaccinationsPerCapita.put(currZipCode, currFullVaccinationsPerCapita);
-				}
+		
+		// non-zero counts of the date, one group per zip code 
+		Query query = vaccinations(partial, false);
+		query.setDates(inputDate, inputDate);
+		QueryResult counts = engine.execute(query);
+		for (int group = 0; group < counts.size(); group++) {
+			int currZipCode = counts.getZipCode(group);
+			int population = populations.getLastNonZero(currZipCode);
+			if(population != 0) {
+				double currVaccinationsPerCapita = counts.getValue(group)/population;
+				partialOrFullVaccinationsPerCapita.put(currZipCode, currVaccinationsPerCapita);
 			}
 		}
-		requestResults.getPartialOrFullVaccinationsPerCapita.put(input, partialOrFullVaccinationsPerCapita);
 		return partialOrFullVaccinationsPerCapita;
 	}
 
 
+	/**
+	 * Builds query of non-zero partial or full vaccination counts of all dates, grouped by zip code 
+	 * @param byDate true to also group counts by date 
+	 */
+	private static Query vaccinations(boolean partial, boolean byDate) {
+		QueryColumn column = partial ? QueryColumn.PARTIALLY_VACCINATED : QueryColumn.FULLY_VACCINATED;
+		Query query = new Query(Aggregate.SUM, column);
+		query.addFilter(column, count -> count != 0);
+		query.setGroupByZipCode(true);
+		query.setGroupByDate(byDate);
+		return query;
+	}
+
 	/**
 	 * Returns total market value divided by the number of valid fieds 
 	 * @param zipCode 5-digit int to search for 
@@ -189,28 +559,31 @@ public class Processor {
 	private Long getAverage(int zipCode, Selector selector, ResultHolder<Integer, Long> requestResults) {
 
 		// no valid output is possible without available data 
-		if(propertyData == null) return null;
+		if(propertyLoad == null) return null;
 
-		// try to search for existing output for current input 
-		if(requestResults.contains(zipCode)) return requestResults.get(zipCode);
-		int propertyCount = 0;
-		double total = 0;
-		for(PropertyData data : propertyData) {
-
-			// add only values that match given zip code 
-			if(data.getZipCode() == zipCode) {
-				
-				// ignore invalid data
-				Double value = selector.getData(data);
-				if(value == null) continue;
-				propertyCount++;
-				total += value;
-			}
-
-		}
-		Long result = propertyCount == 0 ? 0 : (long) (total / propertyCount);
-		requestResults.put(zipCode, result);
-		return result;
+		// existing output for current input is returned, or the one being computed is waited for 
+		return foreground(() -> requestResults.computeIfAbsent(zipCode, zip -> calculateAverage(zip, selector)));
+	}
+	
+	/**
+	 * Calculates the average of values of properties of given zip code 
+	 */
+	private long calculateAverage(int zipCode, Selector selector) {
+		PropertyColumn column = selector.getColumn();
+		
+		// aggregates of columns are precomputed per zip code 
+		if(column != null) return (long) aggregateOf(Aggregate.AVG, QueryColumn.of(column), zipCode);
+		
+		// other selectors visit only properties of given zip code 
+		double[] aggregate = aggregate(propertyData(), zipCode, zipCode, selector);
+		return average(aggregate[0], aggregate[1]);
+	}
+	
+	/**
+	 * Returns total divided by count, truncated, 0 if there is nothing to count 
+	 */
+	private static long average(double total, double count) {
+		return count == 0 ? 0 : (long) (total / count);
 	}
 
 
@@ -223,34 +596,26 @@ public class Processor {
 	public Long getMarketValuePerCapita(int zipCode) {
 
 		// immediately return if data is not available 
-		if(propertyData == null || populationData == null) return null;
+		if(propertyLoad == null || populationLoad == null) return null;
 
 		// try to get output from previous calls 
-		if(requestResults.getTotalMarketValue.contains(zipCode)) {
-			return requestResults.getTotalMarketValue.get(zipCode);
-		}
-		long totalPopulation = 0;
-
+		return foreground(() -> requestResults.getTotalMarketValue.computeIfAbsent(zipCode, this::calculateMarketValuePerCapita));
+	}
+	
+	/**
+	 * Calculates total market value for given zip code divided by total population for that zip code 
+	 */
+	private long calculateMarketValuePerCapita(int zipCode) {
+		
 		// get total population for given zip code 
-		for(PopulationData data : populationData) {
-			if(zipCode == data.getZipCode()) totalPopulation += data.getPopulation();
-		}
+		long totalPopulation = (long) aggregateOf(Aggregate.SUM, QueryColumn.POPULATION, zipCode);
 
 		// return immediately if population records are not available 
-		if(totalPopulation == 0) {
-			requestResults.getTotalMarketValue.put(zipCode, 0l);
-			return 0l;
-		};
-		double totalMarketValue = 0;
-
-		// get total market value for given zip code 
-		for(PropertyData data : propertyData) {
-			if(zipCode == data.getZipCode() && data.getMarketValue() != null)
-				totalMarketValue += data.getMarketValue();
-		}
-		Long result = (long) (totalMarketValue / totalPopulation);
-		requestResults.getTotalMarketValue.put(zipCode, result);
-		return result;
+		if(totalPopulation == 0) return 0l;
+		
+		// get total market value for given zip code, missing values are skipped 
+		double totalMarketValue = aggregateOf(Aggregate.SUM, QueryColumn.MARKET_VALUE, zipCode);
+		return (long) (totalMarketValue / totalPopulation);
 	}
 
 	/**
@@ -260,32 +625,23 @@ public class Processor {
 	 * @return the amount of livable space in a given zip code per completely unvaccinated person on a given date
 	 */
 	public Long getLivableSpacePerUnvaccinatedPerson(int zipCode, String inputDate) {
-		if(covidData == null || populationData == null || propertyData == null) return null;
+		if(covidLoad == null || populationLoad == null || propertyLoad == null) return null;
 		String input = zipCode + inputDate;
-		if (requestResults.getlivableSpacePerUnvaccinatedPerson.contains(input)){
-			return requestResults.getlivableSpacePerUnvaccinatedPerson.get(input);
-		}
-		//find the total population in the zip code
-		long zipCodePopulation = 0;
-		for(PopulationData zipCodePopulationData : populationData) {
-			if (zipCodePopulationData.getZipCode() == zipCode) {
-				zipCodePopulation += zipCodePopulationData.getPopulation();
-				break;
-			}
-		}
+		return readCovidData(() -> requestResults.getlivableSpacePerUnvaccinatedPerson.computeIfAbsent(input,
+				key -> calculateLivableSpacePerUnvaccinatedPerson(zipCode, inputDate)));
+	}
+	
+	/**
+	 * Calculates the amount of livable space in a given zip code per completely unvaccinated person on a given date 
+	 */
+	private long calculateLivableSpacePerUnvaccinatedPerson(int zipCode, String inputDate) {
+		//find the population in the zip code, taken from its first row
+		long zipCodePopulation = populationData().getFirst(zipCode);
 
 		//Find the average livable area per property in zip code
 		long averageTotalLivableAreaInZipcode = getAverageTotalLivableArea(zipCode);
-		//Find number of properties in zipcode
-		Selector selector = new LivableAreaSelector();
-		long numberOfPropertiesInZipCode = 0;
-		for(PropertyData data : propertyData) {
-			if(data.getZipCode() == zipCode) {
-				Double value = selector.getData(data);
-				if(value == null) continue;
-				numberOfPropertiesInZipCode++;
-			}
-		}
+		//Find number of properties in zipcode with livable area
+		long numberOfPropertiesInZipCode = (long) aggregateOf(Aggregate.COUNT, QueryColumn.LIVABLE_AREA, zipCode);
 		//find total livable area in zip code
 		long totalLivableAreaInZipcode = numberOfPropertiesInZipCode*averageTotalLivableAreaInZipcode;
 
@@ -301,40 +657,334 @@ public class Processor {
 			long unvaccinatedPeopleInZipcode = Math.round((zipCodePopulation * (1 - partiallyVaccinatedPeopleInZipcode - fullyVaccinatedPeopleInZipcode)));
 			//calculate and return amount of livable space per unvaccinated person in zip code
 			long livableSpacePerUnvaccinatedPersonInZipCode =  Math.round(totalLivableAreaInZipcode/unvaccinatedPeopleInZipcode);
-			requestResults.getlivableSpacePerUnvaccinatedPerson.put(input, livableSpacePerUnvaccinatedPersonInZipCode);
 			return livableSpacePerUnvaccinatedPersonInZipCode;
 		}
 		else {
-			requestResults.getlivableSpacePerUnvaccinatedPerson.put(input, 0l);
 			return 0l;
 		}
 	}
 	
+	/*
+	 * -----------Vaccinations over ranges of dates--------------------
+	 * Dates are in YYYY-MM-DD format and ranges include both ends. Populations are taken the same way
+	 * as by getPartialOrFullVaccinationsPerCapita 
+	 */
+	
+	/**
+	 * Returns partial or full vaccinations per capita of a zip code for each date in given range 
+	 * that has a non-zero count, the same values getPartialOrFullVaccinationsPerCapita returns for the zip code 
+	 * @param partial true for partial vaccinations, false for full ones 
+	 * @param zipCode 5-digit zip code 
+	 * @param fromDate first date of the range 
+	 * @param toDate last date of the range 
+	 * @return null if data files are not provided, map of dates to vaccinations per capita otherwise 
+	 */
+	public TreeMap<String, Double> getVaccinationsPerCapitaSeries(boolean partial, int zipCode, String fromDate, String toDate) {
+		if(covidLoad == null || populationLoad == null) return null;
+		return readCovidData(() -> calculateVaccinationsPerCapitaSeries(partial, zipCode, fromDate, toDate));
+	}
+	
+	private TreeMap<String, Double> calculateVaccinationsPerCapitaSeries(boolean partial, int zipCode, String fromDate, String toDate) {
+		TreeMap<String, Double> series = new TreeMap<>();
+		int population = populationData().getLastNonZero(zipCode);
+		VaccinationMatrix data = covidData();
+		int slot = data.getIndex().slotOf(zipCode);
+		if(slot < 0 || population == 0) return series;
+		
+		// entries of the zip code are sorted by date, the range is found by two binary searches 
+		VaccinationSeries counts = data.getSeries(partial);
+		int end = counts.upperBound(slot, CovidStore.dateKey(toDate));
+		for(int entry = counts.lowerBound(slot, CovidStore.dateKey(fromDate)); entry < end; entry++) {
+			series.put(CovidStore.formatDate(counts.getDate(entry)), (double) counts.getCount(entry) / population);
+		}
+		return series;
+	}
+	
+	/**
+	 * Returns change of partial or full vaccinations per capita between two dates for each zip code.
+	 * Count of a zip code at a date is its last non-zero count on or before the date 
+	 * @param partial true for partial vaccinations, false for full ones 
+	 * @param fromDate date to compare with 
+	 * @param toDate date to compare 
+	 * @return null if data files are not provided, map of zip codes to the change otherwise 
+	 */
+	public TreeMap<Integer, Double> getVaccinationsPerCapitaChange(boolean partial, String fromDate, String toDate) {
+		if(covidLoad == null || populationLoad == null) return null;
+		return readCovidData(() -> calculateVaccinationsPerCapitaChange(partial, fromDate, toDate));
+	}
+	
+	private TreeMap<Integer, Double> calculateVaccinationsPerCapitaChange(boolean partial, String fromDate, String toDate) {
+		TreeMap<Integer, Double> changes = new TreeMap<>();
+		PopulationTable populations = populationData();
+		VaccinationMatrix data = covidData();
+		ZipIndex zipCodes = data.getIndex();
+		VaccinationSeries counts = data.getSeries(partial);
+		int from = CovidStore.dateKey(fromDate), to = CovidStore.dateKey(toDate);
+		for(int slot = 0; slot < zipCodes.size(); slot++) {
+			int population = populations.getLastNonZero(zipCodes.getZipCode(slot));
+			if(population == 0) continue;
+			int before = counts.getLatest(slot, from), after = counts.getLatest(slot, to);
+			if(before == 0 && after == 0) continue;
+			changes.put(zipCodes.getZipCode(slot), (double) (after - before) / population);
+		}
+		return changes;
+	}
+	
+	/*
+	 * -----------Batches of zip codes and dates--------------------
+	 * Each value of a batch equals the result of the matching single query. A batch runs one query
+	 * grouped by zip code over the range spanned by requested zip codes (and dates) and looks them up in
+	 * its result, values are not boxed and are not kept in result holders 
+	 */
+	
+	/**
+	 * Returns average market value of each of given zip codes 
+	 * @param zipCodes 5-digit zip codes, in any order and possibly repeated 
+	 * @return averages in order of zip codes, null if data file is not provided 
+	 */
+	public long[] getAverageMarketValues(int[] zipCodes) {
+		return getAverages(zipCodes, PropertyColumn.MARKET_VALUE);
+	}
+	
+	/**
+	 * Returns average total livable area of each of given zip codes 
+	 * @param zipCodes 5-digit zip codes, in any order and possibly repeated 
+	 * @return averages in order of zip codes, null if data file is not provided 
+	 */
+	public long[] getAverageTotalLivableAreas(int[] zipCodes) {
+		return getAverages(zipCodes, PropertyColumn.LIVABLE_AREA);
+	}
+	
+	private long[] getAverages(int[] zipCodes, PropertyColumn column) {
+		if(propertyLoad == null) return null;
+		if(zipCodes.length == 0) return new long[0];
+		return foreground(() -> {
+			Query query = new Query(Aggregate.AVG, QueryColumn.of(column));
+			query.setZipCodes(min(zipCodes), max(zipCodes));
+			query.setGroupByZipCode(true);
+			QueryResult result = engine.execute(query);
+			long[] averages = new long[zipCodes.length];
+			for(int i = 0; i < zipCodes.length; i++) averages[i] = (long) result.getValueOrDefault(zipCodes[i], QueryResult.ALL, 0);
+			return averages;
+		});
+	}
+	
+	/**
+	 * Returns total market value divided by total population of each of given zip codes 
+	 * @param zipCodes 5-digit zip codes, in any order and possibly repeated 
+	 * @return values in order of zip codes, null if required data from files is missing 
+	 */
+	public long[] getMarketValuesPerCapita(int[] zipCodes) {
+		if(propertyLoad == null || populationLoad == null) return null;
+		if(zipCodes.length == 0) return new long[0];
+		return foreground(() -> {
+			QueryResult populations = sumsByZipCode(QueryColumn.POPULATION, zipCodes);
+			QueryResult marketValues = sumsByZipCode(QueryColumn.MARKET_VALUE, zipCodes);
+			long[] values = new long[zipCodes.length];
+			for(int i = 0; i < zipCodes.length; i++) {
+				long totalPopulation = (long) populations.getValueOrDefault(zipCodes[i], QueryResult.ALL, 0);
+				if(totalPopulation != 0) values[i] = (long) (marketValues.getValueOrDefault(zipCodes[i], QueryResult.ALL, 0) / totalPopulation);
+			}
+			return values;
+		});
+	}
+	
+	/**
+	 * Returns sums of a column grouped by zip code over the range spanned by given zip codes 
+	 */
+	private QueryResult sumsByZipCode(QueryColumn column, int[] zipCodes) {
+		Query query = new Query(Aggregate.SUM, column);
+		query.setZipCodes(min(zipCodes), max(zipCodes));
+		query.setGroupByZipCode(true);
+		return engine.execute(query);
+	}
+	
+	/**
+	 * Returns partial or full vaccinations per capita of given zip codes on each of given dates 
+	 * @param partial true for partially vaccinated persons, false for fully vaccinated ones 
+	 * @param zipCodes 5-digit zip codes, in any order and possibly repeated 
+	 * @param dates dates in YYYY-MM-DD format 
+	 * @return rates by date and then by zip code, 0 where a zip code has no count or no population.
+	 * Null if data files are not provided 
+	 */
+	public double[][] getVaccinationsPerCapita(boolean partial, int[] zipCodes, List<String> dates) {
+		if(covidLoad == null || populationLoad == null) return null;
+		double[][] rates = new double[dates.size()][zipCodes.length];
+		if(dates.isEmpty() || zipCodes.length == 0) return rates;
+		
+		// only the cells between the first and the last requested date and zip code are aggregated 
+		String fromDate = dates.get(0), toDate = dates.get(0);
+		for(String date : dates) {
+			if(CovidStore.dateKey(date) < CovidStore.dateKey(fromDate)) fromDate = date;
+			if(CovidStore.dateKey(date) > CovidStore.dateKey(toDate)) toDate = date;
+		}
+		Query query = vaccinations(partial, true);
+		query.setZipCodes(min(zipCodes), max(zipCodes));
+		query.setDates(fromDate, toDate);
+		return readCovidData(() -> {
+			PopulationTable populations = populationData();
+			QueryResult counts = engine.execute(query);
+			for(int d = 0; d < rates.length; d++) {
+				int date = CovidStore.dateKey(dates.get(d));
+				for(int i = 0; i < zipCodes.length; i++) {
+					int population = populations.getLastNonZero(zipCodes[i]);
+					if(population != 0) rates[d][i] = counts.getValueOrDefault(zipCodes[i], date, 0) / population;
+				}
+			}
+			return rates;
+		});
+	}
+	
+	private static int min(int[] values) {
+		int min = values[0];
+		for(int value : values) min = Math.min(min, value);
+		return min;
+	}
+	
+	private static int max(int[] values) {
+		int max = values[0];
+		for(int value : values) max = Math.max(max, value);
+		return max;
+	}
+	
+	/*
+	 * -----------Aggregates over ranges of zip codes--------------------
+	 * Ranges include both ends, a prefix such as 191 is the range from ZipIndex.prefixStart to
+	 * ZipIndex.prefixEnd. Each query takes two binary searches over prefix sums, whatever the width of the range
+	 */
+	
+	/**
+	 * Returns total population of zip codes in given range 
+	 * @param from lowest zip code of the range 
+	 * @param to highest zip code of the range 
+	 * @return null if data file is not provided, valid long otherwise 
+	 */
+	public Long getPopulationInRange(int from, int to) {
+		if(populationLoad == null) return null;
+		return foreground(() -> (long) aggregateOf(Aggregate.SUM, QueryColumn.POPULATION, from, to).getSum(0));
+	}
+	
+	public Long getTotalMarketValueInRange(int from, int to) {
+		return getRangeTotal(from, to, new MarketValueSelector());
+	}
+	
+	public Long getAverageMarketValueInRange(int from, int to) {
+		return getRangeAverage(from, to, new MarketValueSelector());
+	}
+	
+	public Long getTotalLivableAreaInRange(int from, int to) {
+		return getRangeTotal(from, to, new LivableAreaSelector());
+	}
+	
+	public Long getAverageLivableAreaInRange(int from, int to) {
+		return getRangeAverage(from, to, new LivableAreaSelector());
+	}
+	
+	/**
+	 * Returns the sum of values of all properties of zip codes in given range 
+	 * @param from lowest zip code of the range 
+	 * @param to highest zip code of the range 
+	 * @param selector instance of selector 
+	 * @return null if data file is not provided, valid long otherwise 
+	 */
+	private Long getRangeTotal(int from, int to, Selector selector) {
+		if(propertyLoad == null) return null;
+		return (long) rangeAggregate(from, to, selector)[0];
+	}
+	
+	/**
+	 * Returns the sum of values of all properties of zip codes in given range divided by number of them 
+	 * @param from lowest zip code of the range 
+	 * @param to highest zip code of the range 
+	 * @param selector instance of selector 
+	 * @return null if data file is not provided, valid long otherwise 
+	 */
+	private Long getRangeAverage(int from, int to, Selector selector) {
+		if(propertyLoad == null) return null;
+		double[] aggregate = rangeAggregate(from, to, selector);
+		return aggregate[1] == 0 ? 0 : (long) (aggregate[0] / aggregate[1]);
+	}
+	
+	/**
+	 * Returns sum and number of valid values of properties in given range. Column selectors read
+	 * prefix sums, other selectors visit only properties in the range 
+	 */
+	private double[] rangeAggregate(int from, int to, Selector selector) {
+		return foreground(() -> {
+			PropertyColumn column = selector.getColumn();
+			if(column != null) {
+				QueryResult range = aggregateOf(Aggregate.SUM, QueryColumn.of(column), from, to);
+				return new double[] { range.getSum(0), range.getCount(0) };
+			}
+			return aggregate(propertyData(), from, to, selector);
+		});
+	}
+	
+	/**
+	 * Returns sum and number of valid values of properties of zip codes in given range. Rows of the
+	 * range are contiguous and large ranges are split into chunks aggregated in parallel 
+	 */
+	private double[] aggregate(PropertyTable properties, int from, int to, Selector selector) {
+		if(from > to) return new double[2];
+		return aggregator.aggregate(properties.firstRow(from), properties.endRow(to),
+				(first, end, result) -> aggregate(properties.rowCursor(first, end), selector, result));
+	}
+	
+	/**
+	 * Adds sum and number of valid values of properties visited by the cursor to given result.
+	 * Primitive selectors are read without boxing 
+	 */
+	private static void aggregate(PropertyCursor data, Selector selector, double[] result) {
+		double total = 0;
+		int propertyCount = 0;
+		if(selector instanceof DoubleSelector) {
+			DoubleSelector primitive = (DoubleSelector) selector;
+			while(data.next()) {
+				double value = primitive.getDouble(data);
+				
+				// ignore invalid data
+				if(!primitive.isValid(value)) continue;
+				propertyCount++;
+				total += value;
+			}
+		}
+		else {
+			while(data.next()) {
+				Double value = selector.getData(data);
+				if(value == null) continue;
+				propertyCount++;
+				total += value;
+			}
+		}
+		result[0] += total;
+		result[1] += propertyCount;
+	}
+	
 	/*
 	 * -----------Availability booleans for ui--------------------
 	 */
 	public boolean isTotalPopulationAvailable() {
-		return populationData != null;
+		return populationLoad != null;
 	}
 	
 	public boolean areVaccinationsAvailable() {
-		return covidData != null && populationData != null;
+		return covidLoad != null && populationLoad != null;
 	}
 	
 	public boolean isAverageMarketAvailable() {
-		return propertyData != null;
+		return propertyLoad != null;
 	}
 	
 	public boolean isAverageLivableAreaAvailable() {
-		return propertyData != null;
+		return propertyLoad != null;
 	}
 	
 	public boolean isTotalMarketAvailable() {
-		return propertyData != null && populationData != null;
+		return propertyLoad != null && populationLoad != null;
 	}
 	
 	public boolean isLSpacePPersonAvailable() {
-		return propertyData != null && populationData != null && covidData != null;
+		return propertyLoad != null && populationLoad != null && covidLoad != null;
 	}
 
 } 
@@ -0,0 +1,140 @@
+package edu.upenn.cit594.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoublePredicate;
+
+import edu.upenn.cit594.util.CovidStore;
+import edu.upenn.cit594.util.ZipIndex;
+
+/**
+ * Declarative query over one data set: an aggregate of a column, over rows within ranges of zip codes
+ * and dates that pass all filters, grouped by zip code and/or date. Without grouping the query has a
+ * single group. Ranges include both ends and cover everything by default 
+ * @author andrii podhornyi 
+ *
+ */
+public class Query {
+
+	private final Aggregate aggregate;
+	private final QueryColumn column;
+	
+	private int fromZipCode = 0, toZipCode = ZipIndex.ZIP_CODES - 1;
+	
+	/**
+	 * YYYYMMDD keys of the range of dates, only covid data has dates 
+	 */
+	private int fromDate = 0, toDate = Integer.MAX_VALUE;
+	
+	private final List<Filter> filters = new ArrayList<>();
+	private boolean groupByZipCode, groupByDate;
+	
+	/**
+	 * Predicate on a column of the row. Missing values are passed to predicates as NaN 
+	 */
+	static final class Filter {
+		final QueryColumn column;
+		final DoublePredicate predicate;
+		
+		private Filter(QueryColumn column, DoublePredicate predicate) {
+			this.column = column;
+			this.predicate = predicate;
+		}
+	}
+	
+	/**
+	 * Creates query of all rows of the data set of the column 
+	 * @param aggregate aggregate to compute 
+	 * @param column column to aggregate 
+	 */
+	public Query(Aggregate aggregate, QueryColumn column) {
+		this.aggregate = aggregate;
+		this.column = column;
+	}
+	
+	/**
+	 * Keeps rows of zip codes in given range 
+	 * @param from lowest zip code of the range 
+	 * @param to highest zip code of the range 
+	 */
+	public void setZipCodes(int from, int to) {
+		fromZipCode = from;
+		toZipCode = to;
+	}
+	
+	/**
+	 * Keeps rows of dates in given range 
+	 * @param from first date in YYYY-MM-DD format 
+	 * @param to last date in YYYY-MM-DD format 
+	 * @throws IllegalArgumentException if the data set has no dates 
+	 */
+	public void setDates(String from, String to) {
+		requireDates();
+		fromDate = CovidStore.dateKey(from);
+		toDate = CovidStore.dateKey(to);
+	}
+	
+	/**
+	 * Keeps rows whose value of given column passes the predicate. Filters of a query are all applied 
+	 * @param column column of the same data set 
+	 * @param predicate predicate on the value, which is NaN if the value is missing 
+	 * @throws IllegalArgumentException if the column belongs to other data set 
+	 */
+	public void addFilter(QueryColumn column, DoublePredicate predicate) {
+		if(column.getSource() != this.column.getSource()) throw new IllegalArgumentException(column + " is not a column of " + this.column.getSource());
+		filters.add(new Filter(column, predicate));
+	}
+	
+	public void setGroupByZipCode(boolean groupByZipCode) {
+		this.groupByZipCode = groupByZipCode;
+	}
+	
+	/**
+	 * Sets grouping by date 
+	 * @throws IllegalArgumentException if the data set has no dates 
+	 */
+	public void setGroupByDate(boolean groupByDate) {
+		if(groupByDate) requireDates();
+		this.groupByDate = groupByDate;
+	}
+	
+	private void requireDates() {
+		if(column.getSource() != QueryColumn.Source.COVID) throw new IllegalArgumentException(column.getSource() + " has no dates");
+	}
+	
+	public Aggregate getAggregate() {
+		return aggregate;
+	}
+	
+	public QueryColumn getColumn() {
+		return column;
+	}
+	
+	public int getFromZipCode() {
+		return fromZipCode;
+	}
+	
+	public int getToZipCode() {
+		return toZipCode;
+	}
+	
+	public int getFromDate() {
+		return fromDate;
+	}
+	
+	public int getToDate() {
+		return toDate;
+	}
+	
+	public boolean isGroupByZipCode() {
+		return groupByZipCode;
+	}
+	
+	public boolean isGroupByDate() {
+		return groupByDate;
+	}
+	
+	List<Filter> getFilters() {
+		return filters;
+	}
+}
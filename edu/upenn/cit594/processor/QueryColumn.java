@@ -0,0 +1,46 @@
+package edu.upenn.cit594.processor;
+
+import edu.upenn.cit594.util.PropertyColumn;
+
+/**
+ * Numeric columns that queries aggregate and filter on, each belonging to one data set. Zip codes
+ * and dates are not columns, queries filter and group by them directly 
+ * @author andrii podhornyi 
+ *
+ */
+public enum QueryColumn {
+	MARKET_VALUE(Source.PROPERTIES), LIVABLE_AREA(Source.PROPERTIES), POPULATION(Source.POPULATION),
+	PARTIALLY_VACCINATED(Source.COVID), FULLY_VACCINATED(Source.COVID);
+	
+	/**
+	 * Data sets queries run over 
+	 */
+	public enum Source {
+		PROPERTIES, POPULATION, COVID
+	}
+	
+	private final Source source;
+	
+	private QueryColumn(Source source) {
+		this.source = source;
+	}
+	
+	public Source getSource() {
+		return source;
+	}
+	
+	/**
+	 * Returns column of properties with given precomputed aggregates 
+	 */
+	public static QueryColumn of(PropertyColumn column) {
+		return column == PropertyColumn.MARKET_VALUE ? MARKET_VALUE : LIVABLE_AREA;
+	}
+	
+	/**
+	 * Returns column of {@code PropertyTable} aggregates, null for columns of other data sets 
+	 */
+	PropertyColumn getPropertyColumn() {
+		if(this == MARKET_VALUE) return PropertyColumn.MARKET_VALUE;
+		return this == LIVABLE_AREA ? PropertyColumn.LIVABLE_AREA : null;
+	}
+}
@@ -0,0 +1,289 @@
+package edu.upenn.cit594.processor;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import edu.upenn.cit594.util.ParallelAggregator;
+import edu.upenn.cit594.util.PopulationTable;
+import edu.upenn.cit594.util.PropertyColumn;
+import edu.upenn.cit594.util.PropertyCursor;
+import edu.upenn.cit594.util.PropertyRecord;
+import edu.upenn.cit594.util.PropertyTable;
+import edu.upenn.cit594.util.VaccinationMatrix;
+import edu.upenn.cit594.util.ZipIndex;
+
+/**
+ * Executes queries over loaded data sets. Each query runs as one of two physical plans:
+ * <ul>
+ * <li>index plan: sums, counts and averages of property and population data without filters are read
+ * from aggregates precomputed at load, a slot per zip code group or two prefix sums for the whole range</li>
+ * <li>scan plan: all other queries visit each row of the zip code and date ranges once, apply filters and
+ * add values to dense accumulators of their groups</li>
+ * </ul>
+ * Property scans run each zip code on a single worker of the aggregator and combine zip codes in order,
+ * so results do not depend on the number of threads. Covid rows are the cells of the vaccination
+ * matrix, cells of dates without records of a zip code hold 0. Queries of covid data should not run
+ * while records are merged into it 
+ * @author andrii podhornyi 
+ *
+ */
+public class QueryEngine {
+
+	private final Supplier<PropertyTable> properties;
+	private final Supplier<PopulationTable> population;
+	private final Supplier<VaccinationMatrix> covid;
+	private final Supplier<ParallelAggregator> aggregator;
+	
+	private static final int[] ALL = { QueryResult.ALL };
+	
+	/**
+	 * Creates engine over given data sets. Suppliers are asked only by queries of their data set and
+	 * may block until the data set is loaded 
+	 */
+	public QueryEngine(Supplier<PropertyTable> properties, Supplier<PopulationTable> population,
+			Supplier<VaccinationMatrix> covid, Supplier<ParallelAggregator> aggregator) {
+		this.properties = properties;
+		this.population = population;
+		this.covid = covid;
+		this.aggregator = aggregator;
+	}
+	
+	/**
+	 * Executes given query 
+	 * @param query query to execute 
+	 * @return groups of the result 
+	 */
+	public QueryResult execute(Query query) {
+		switch(query.getColumn().getSource()) {
+		case PROPERTIES:
+			return usesIndex(query) ? indexProperties(query) : scanProperties(query);
+		case POPULATION:
+			return usesIndex(query) ? indexPopulation(query) : scanPopulation(query);
+		default:
+			return scanCovid(query);
+		}
+	}
+	
+	private static boolean usesIndex(Query query) {
+		Aggregate aggregate = query.getAggregate();
+		return query.getFilters().isEmpty() && aggregate != Aggregate.MIN && aggregate != Aggregate.MAX;
+	}
+	
+	private QueryResult indexProperties(Query query) {
+		PropertyTable table = properties.get();
+		PropertyColumn column = query.getColumn().getPropertyColumn();
+		int from = query.getFromZipCode(), to = query.getToZipCode();
+		if(!query.isGroupByZipCode()) {
+			Groups groups = new Groups(query, ALL, ALL);
+			groups.add(0, table.getCount(from, to, column), table.getSum(from, to, column));
+			return groups.toResult();
+		}
+		int[] slots = slots(table.getIndex(), from, to);
+		Groups groups = new Groups(query, zipCodes(table.getIndex(), slots), ALL);
+		for(int group = 0; group < slots[1] - slots[0]; group++) {
+			int zipCode = groups.zipCodes[group];
+			groups.add(group, table.getCount(zipCode, column), table.getSum(zipCode, column));
+		}
+		return groups.toResult();
+	}
+	
+	private QueryResult indexPopulation(Query query) {
+		PopulationTable table = population.get();
+		int from = query.getFromZipCode(), to = query.getToZipCode();
+		if(!query.isGroupByZipCode()) {
+			Groups groups = new Groups(query, ALL, ALL);
+			if(from <= to) groups.add(0, table.endRow(to) - table.firstRow(from), table.getTotal(from, to));
+			return groups.toResult();
+		}
+		int[] slots = slots(table.getIndex(), from, to);
+		Groups groups = new Groups(query, zipCodes(table.getIndex(), slots), ALL);
+		for(int group = 0; group < slots[1] - slots[0]; group++) {
+			int zipCode = groups.zipCodes[group];
+			groups.add(group, table.endRow(zipCode) - table.firstRow(zipCode), table.getTotal(zipCode));
+		}
+		return groups.toResult();
+	}
+	
+	private QueryResult scanProperties(Query query) {
+		PropertyTable table = properties.get();
+		int[] slots = slots(table.getIndex(), query.getFromZipCode(), query.getToZipCode());
+		int count = slots[1] - slots[0];
+		long work = count == 0 ? 0 : table.endRow(query.getToZipCode()) - table.firstRow(query.getFromZipCode());
+		
+		// every zip code has its own group, filled by a single worker 
+		Groups groups = new Groups(query, zipCodes(table.getIndex(), slots), ALL);
+		aggregator.get().forEach(count, work, group -> {
+			PropertyCursor rows = table.cursor(groups.zipCodes[group]);
+			while(rows.next()) {
+				if(passes(query, rows)) groups.add(group, value(query.getColumn(), rows));
+			}
+		});
+		return query.isGroupByZipCode() ? groups.toResult() : groups.merge().toResult();
+	}
+	
+	private QueryResult scanPopulation(Query query) {
+		PopulationTable table = population.get();
+		int[] slots = slots(table.getIndex(), query.getFromZipCode(), query.getToZipCode());
+		Groups groups = new Groups(query, query.isGroupByZipCode() ? zipCodes(table.getIndex(), slots) : ALL, ALL);
+		for(int slot = slots[0]; slot < slots[1]; slot++) {
+			int zipCode = table.getIndex().getZipCode(slot);
+			int group = query.isGroupByZipCode() ? slot - slots[0] : 0;
+			for(int row = table.firstRow(zipCode); row < table.endRow(zipCode); row++) {
+				double value = table.getPopulation(row);
+				if(passes(query.getFilters(), value)) groups.add(group, value);
+			}
+		}
+		return groups.toResult();
+	}
+	
+	private QueryResult scanCovid(Query query) {
+		VaccinationMatrix data = covid.get();
+		ZipIndex index = data.getIndex();
+		int[] slots = slots(index, query.getFromZipCode(), query.getToZipCode());
+		int[] dates = data.getDates();
+		int fromRow = lowerBound(dates, query.getFromDate());
+		int toRow = Math.max(fromRow, lowerBound(dates, query.getToDate() + 1L));
+		
+		int[] zipGroups = query.isGroupByZipCode() ? zipCodes(index, slots) : ALL;
+		int[] dateGroups = query.isGroupByDate() ? Arrays.copyOfRange(dates, fromRow, toRow) : ALL;
+		Groups groups = new Groups(query, zipGroups, dateGroups);
+		boolean partial = query.getColumn() == QueryColumn.PARTIALLY_VACCINATED;
+		
+		// cells are visited row by row, in the order they are stored 
+		for(int row = fromRow; row < toRow; row++) {
+			int date = query.isGroupByDate() ? row - fromRow : 0;
+			for(int slot = slots[0]; slot < slots[1]; slot++) {
+				if(!passes(query, data, row, slot)) continue;
+				int zip = query.isGroupByZipCode() ? slot - slots[0] : 0;
+				groups.add(zip * dateGroups.length + date, data.getCell(partial, row, slot));
+			}
+		}
+		return groups.toResult();
+	}
+	
+	private static boolean passes(Query query, PropertyRecord row) {
+		for(Query.Filter filter : query.getFilters()) {
+			if(!filter.predicate.test(value(filter.column, row))) return false;
+		}
+		return true;
+	}
+	
+	private static boolean passes(Iterable<Query.Filter> filters, double value) {
+		for(Query.Filter filter : filters) {
+			if(!filter.predicate.test(value)) return false;
+		}
+		return true;
+	}
+	
+	private static boolean passes(Query query, VaccinationMatrix data, int row, int slot) {
+		for(Query.Filter filter : query.getFilters()) {
+			if(!filter.predicate.test(data.getCell(filter.column == QueryColumn.PARTIALLY_VACCINATED, row, slot))) return false;
+		}
+		return true;
+	}
+	
+	private static double value(QueryColumn column, PropertyRecord row) {
+		return column == QueryColumn.MARKET_VALUE ? row.marketValue() : row.totalLivableArea();
+	}
+	
+	/**
+	 * Returns first slot and the slot right after the last slot of zip codes in given range 
+	 */
+	private static int[] slots(ZipIndex index, int from, int to) {
+		int first = index.lowerBound(from);
+		return new int[] { first, Math.max(first, index.upperBound(to)) };
+	}
+	
+	private static int[] zipCodes(ZipIndex index, int[] slots) {
+		int[] zipCodes = new int[slots[1] - slots[0]];
+		for(int i = 0; i < zipCodes.length; i++) zipCodes[i] = index.getZipCode(slots[0] + i);
+		return zipCodes;
+	}
+	
+	/**
+	 * Returns number of keys lower than given key 
+	 */
+	private static int lowerBound(int[] keys, long key) {
+		if(key > Integer.MAX_VALUE) return keys.length;
+		int position = Arrays.binarySearch(keys, (int) key);
+		return position >= 0 ? position : -position - 1;
+	}
+	
+	/**
+	 * Dense accumulators of all groups a query may produce, ordered by zip code and then by date 
+	 */
+	private static class Groups {
+		private final Query query;
+		private final int[] zipCodes, dates;
+		private final long[] counts;
+		private final double[] sums, mins, maxes;
+		
+		Groups(Query query, int[] zipCodes, int[] dates) {
+			this.query = query;
+			this.zipCodes = zipCodes;
+			this.dates = dates;
+			int size = zipCodes.length * dates.length;
+			counts = new long[size];
+			sums = new double[size];
+			mins = new double[size];
+			maxes = new double[size];
+			Arrays.fill(mins, Double.POSITIVE_INFINITY);
+			Arrays.fill(maxes, Double.NEGATIVE_INFINITY);
+		}
+		
+		/**
+		 * Adds value to given group, missing values are left out 
+		 */
+		void add(int group, double value) {
+			if(Double.isNaN(value)) return;
+			counts[group]++;
+			sums[group] += value;
+			if(value < mins[group]) mins[group] = value;
+			if(value > maxes[group]) maxes[group] = value;
+		}
+		
+		/**
+		 * Adds precomputed count and sum to given group 
+		 */
+		void add(int group, long count, double sum) {
+			counts[group] += count;
+			sums[group] += sum;
+		}
+		
+		/**
+		 * Combines all groups into a single group, in group order 
+		 */
+		Groups merge() {
+			Groups merged = new Groups(query, ALL, ALL);
+			for(int group = 0; group < counts.length; group++) {
+				if(counts[group] == 0) continue;
+				merged.add(0, counts[group], sums[group]);
+				merged.mins[0] = Math.min(merged.mins[0], mins[group]);
+				merged.maxes[0] = Math.max(merged.maxes[0], maxes[group]);
+			}
+			return merged;
+		}
+		
+		QueryResult toResult() {
+			boolean grouped = query.isGroupByZipCode() || query.isGroupByDate();
+			int size = 0;
+			for(int group = 0; group < counts.length; group++) {
+				if(counts[group] > 0 || !grouped) size++;
+			}
+			int[] groupZipCodes = new int[size], groupDates = new int[size];
+			long[] groupCounts = new long[size];
+			double[] groupSums = new double[size], groupMins = new double[size], groupMaxes = new double[size];
+			int next = 0;
+			for(int group = 0; group < counts.length; group++) {
+				if(counts[group] == 0 && grouped) continue;
+				groupZipCodes[next] = zipCodes[group / dates.length];
+				groupDates[next] = dates[group % dates.length];
+				groupCounts[next] = counts[group];
+				groupSums[next] = sums[group];
+				groupMins[next] = mins[group];
+				groupMaxes[next++] = maxes[group];
+			}
+			return new QueryResult(query.getAggregate(), groupZipCodes, groupDates, groupCounts, groupSums, groupMins, groupMaxes);
+		}
+	}
+}
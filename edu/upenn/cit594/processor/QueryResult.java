@@ -0,0 +1,112 @@
+package edu.upenn.cit594.processor;
+
+/**
+ * Groups of a query result, ordered by zip code and then by date. Grouped queries keep only groups
+ * with values, a query without grouping always has its single group 
+ * @author andrii podhornyi 
+ *
+ */
+public class QueryResult {
+
+	/**
+	 * Key of a group that is not grouped by zip code or by date 
+	 */
+	public static final int ALL = -1;
+	
+	private final Aggregate aggregate;
+	private final int[] zipCodes, dates;
+	private final long[] counts;
+	private final double[] sums, mins, maxes;
+	
+	QueryResult(Aggregate aggregate, int[] zipCodes, int[] dates, long[] counts, double[] sums, double[] mins, double[] maxes) {
+		this.aggregate = aggregate;
+		this.zipCodes = zipCodes;
+		this.dates = dates;
+		this.counts = counts;
+		this.sums = sums;
+		this.mins = mins;
+		this.maxes = maxes;
+	}
+	
+	/**
+	 * Returns number of groups 
+	 */
+	public int size() {
+		return counts.length;
+	}
+	
+	/**
+	 * Returns zip code of given group, {@code ALL} if the query is not grouped by zip code 
+	 */
+	public int getZipCode(int group) {
+		return zipCodes[group];
+	}
+	
+	/**
+	 * Returns YYYYMMDD key of the date of given group, {@code ALL} if the query is not grouped by date 
+	 */
+	public int getDate(int group) {
+		return dates[group];
+	}
+	
+	/**
+	 * Returns number of values of given group 
+	 */
+	public long getCount(int group) {
+		return counts[group];
+	}
+	
+	/**
+	 * Returns sum of values of given group 
+	 */
+	public double getSum(int group) {
+		return sums[group];
+	}
+	
+	/**
+	 * Returns aggregate of given group, NaN for AVG, MIN and MAX of a group without values 
+	 */
+	public double getValue(int group) {
+		switch(aggregate) {
+		case SUM:
+			return sums[group];
+		case COUNT:
+			return counts[group];
+		case AVG:
+			return counts[group] == 0 ? Double.NaN : sums[group] / counts[group];
+		case MIN:
+			return counts[group] == 0 ? Double.NaN : mins[group];
+		default:
+			return counts[group] == 0 ? Double.NaN : maxes[group];
+		}
+	}
+	
+	/**
+	 * Finds group of given keys 
+	 * @param zipCode zip code of the group, {@code ALL} if the query is not grouped by zip code 
+	 * @param date YYYYMMDD key of the date of the group, {@code ALL} if the query is not grouped by date 
+	 * @return index of the group, -1 if there is no such group 
+	 */
+	public int indexOf(int zipCode, int date) {
+		int low = 0, high = size() - 1;
+		while(low <= high) {
+			int middle = (low + high) >>> 1;
+			int order = zipCodes[middle] != zipCode ? Integer.compare(zipCodes[middle], zipCode) : Integer.compare(dates[middle], date);
+			if(order == 0) return middle;
+			if(order < 0) low = middle + 1;
+			else high = middle - 1;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Returns aggregate of the group of given keys 
+	 * @param zipCode zip code of the group, {@code ALL} if the query is not grouped by zip code 
+	 * @param date YYYYMMDD key of the date of the group, {@code ALL} if the query is not grouped by date 
+	 * @param missing value returned if there is no such group 
+	 */
+	public double getValueOrDefault(int zipCode, int date, double missing) {
+		int group = indexOf(zipCode, date);
+		return group < 0 ? missing : getValue(group);
+	}
+}
@@ -1,7 +1,16 @@
 package edu.upenn.cit594.processor;
 
-import edu.upenn.cit594.util.PropertyData;
+import edu.upenn.cit594.util.PropertyColumn;
+import edu.upenn.cit594.util.PropertyRecord;
 
 public interface Selector {
-	public Double getData(PropertyData data);
+	public Double getData(PropertyRecord data);
+	
+	/**
+	 * Returns column the selector reads, so its per-zip aggregates can be taken from {@code PropertyTable}.
+	 * Selectors that compute other values return null and are applied to each property 
+	 */
+	public default PropertyColumn getColumn() {
+		return null;
+	}
 }
@@ -0,0 +1,213 @@
+package edu.upenn.cit594.studenttests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.upenn.cit594.datamanagement.ArgumentStorage;
+import edu.upenn.cit594.datamanagement.CovidCSVParser;
+import edu.upenn.cit594.datamanagement.PopulationParser;
+import edu.upenn.cit594.datamanagement.PropertyParser;
+import edu.upenn.cit594.datamanagement.ResultHolder;
+import edu.upenn.cit594.processor.Processor;
+
+public class ConcurrentProcessorTests {
+
+	private static final int ZIPS = 40, DAYS = 20;
+
+	private List<File> files = new ArrayList<>();
+	private String covid, population, properties;
+
+	@Before
+	public void createFiles() throws IOException {
+		Random random = new Random(594);
+		covid = write("covid", ".csv", "zip_code,etl_timestamp,partially_vaccinated,fully_vaccinated\n", out -> {
+			for (int day = 1; day <= DAYS; day++) {
+				for (int zip = 0; zip < ZIPS; zip++) {
+					out.printf("%d,2021-03-%02d 12:00:00,%d,%d%n", 19100 + zip, day, random.nextInt(900), random.nextInt(900));
+				}
+			}
+		});
+		population = write("population", ".csv", "zip_code,population\n", out -> {
+			for (int zip = 0; zip < ZIPS; zip++) out.println((19100 + zip) + "," + (3000 + random.nextInt(9000)));
+		});
+		properties = write("properties", ".csv", "market_value,total_livable_area,zip_code\n", out -> {
+			for (int i = 0; i < 50000; i++) {
+				out.println(random.nextInt(900000) + "," + random.nextInt(5000) + "," + (19100 + random.nextInt(ZIPS)));
+			}
+		});
+	}
+
+	private interface Content {
+		void write(PrintWriter out);
+	}
+
+	private String write(String prefix, String suffix, String header, Content content) throws IOException {
+		File file = File.createTempFile(prefix, suffix);
+		files.add(file);
+		try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+			out.print(header);
+			content.write(out);
+		}
+		return file.getPath();
+	}
+
+	@After
+	public void deleteFiles() {
+		for (File file : files) file.delete();
+	}
+
+	private Processor processor() throws Exception {
+		ArgumentStorage arguments = new ArgumentStorage(new String[] { "--covid=" + covid, "--population=" + population, "--properties=" + properties });
+		return new Processor(new CovidCSVParser(covid), new PopulationParser(population), new PropertyParser(properties), arguments);
+	}
+
+	/* all queries of one request, in a single string so that results can be compared */
+	private static String request(Processor processor, int zip, String date) {
+		return processor.getAverageMarketValue(zip) + " " + processor.getAverageTotalLivableArea(zip) + " "
+				+ processor.getMarketValuePerCapita(zip) + " " + processor.getLivableSpacePerUnvaccinatedPerson(zip, date) + " "
+				+ processor.getPartialOrFullVaccinationsPerCapita(zip % 2 == 0, date) + " " + processor.getTotalPopulationForAllZipCodes();
+	}
+
+	/* several clients of one processor get the same results as a single client of its own processor */
+	@Test(timeout = 60000)
+	public void testSharedProcessor() throws Exception {
+		Processor single = processor();
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < ZIPS * DAYS; i++) expected.add(request(single, 19100 + i % ZIPS, String.format("2021-03-%02d", 1 + i / ZIPS)));
+
+		int threads = 8;
+		Processor shared = processor();
+		ExecutorService clients = Executors.newFixedThreadPool(threads);
+		List<Future<String>> results = new ArrayList<>();
+		for (int i = 0; i < ZIPS * DAYS; i++) {
+			int request = i;
+			results.add(clients.submit(() -> request(shared, 19100 + request % ZIPS, String.format("2021-03-%02d", 1 + request / ZIPS))));
+		}
+		for (int i = 0; i < results.size(); i++) assertEquals(expected.get(i), results.get(i).get());
+		clients.shutdown();
+		assertEquals(true, clients.awaitTermination(10, TimeUnit.SECONDS));
+	}
+
+	/* results computed by warm-up are the results of cold queries, and later queries only hit them */
+	@Test(timeout = 60000)
+	public void testWarmUp() throws Exception {
+		Processor cold = processor();
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < ZIPS * DAYS; i++) expected.add(request(cold, 19100 + i % ZIPS, String.format("2021-03-%02d", 1 + i / ZIPS)));
+
+		Processor warm = processor();
+		warm.warmUp(true).get();
+		String statistics = warm.getCacheStatistics();
+		for (int i = 0; i < ZIPS * DAYS; i++) {
+			assertEquals(expected.get(i), request(warm, 19100 + i % ZIPS, String.format("2021-03-%02d", 1 + i / ZIPS)));
+		}
+		assertEquals(statistics.replaceAll(" \\d+ hits", ""), warm.getCacheStatistics().replaceAll(" \\d+ hits", ""));
+	}
+
+	/* batches answer every zip code and date like the single queries, zip codes without data included */
+	@Test
+	public void testBatchQueries() throws Exception {
+		Processor processor = processor();
+		int[] zips = new int[ZIPS + 2];
+		for (int i = 0; i < ZIPS; i++) zips[i] = 19100 + (i * 7) % ZIPS;
+		zips[ZIPS] = 19099;
+		zips[ZIPS + 1] = zips[0];
+		List<String> dates = new ArrayList<>();
+		for (int day = 0; day <= DAYS + 1; day++) dates.add(String.format("2021-03-%02d", day));
+
+		long[] markets = processor.getAverageMarketValues(zips), areas = processor.getAverageTotalLivableAreas(zips);
+		long[] perCapita = processor.getMarketValuesPerCapita(zips);
+		double[][] partial = processor.getVaccinationsPerCapita(true, zips, dates);
+		double[][] full = processor.getVaccinationsPerCapita(false, zips, dates);
+		for (int i = 0; i < zips.length; i++) {
+			assertEquals(processor.getAverageMarketValue(zips[i]).longValue(), markets[i]);
+			assertEquals(processor.getAverageTotalLivableArea(zips[i]).longValue(), areas[i]);
+			assertEquals(processor.getMarketValuePerCapita(zips[i]).longValue(), perCapita[i]);
+			for (int d = 0; d < dates.size(); d++) {
+				Double rate = processor.getPartialOrFullVaccinationsPerCapita(true, dates.get(d)).get(zips[i]);
+				assertEquals(rate == null ? 0 : rate, partial[d][i], 0);
+				rate = processor.getPartialOrFullVaccinationsPerCapita(false, dates.get(d)).get(zips[i]);
+				assertEquals(rate == null ? 0 : rate, full[d][i], 0);
+			}
+		}
+
+		/* a batch over a narrow unsorted subset only aggregates the range it spans */
+		int[] subset = { zips[3], zips[1] };
+		List<String> days = List.of(dates.get(3), dates.get(2));
+		double[][] narrow = processor.getVaccinationsPerCapita(true, subset, days);
+		long[] narrowMarkets = processor.getAverageMarketValues(subset);
+		for (int i = 0; i < subset.length; i++) {
+			int column = i == 0 ? 3 : 1;
+			assertEquals(markets[column], narrowMarkets[i]);
+			assertEquals(partial[3][column], narrow[0][i], 0);
+			assertEquals(partial[2][column], narrow[1][i], 0);
+		}
+		assertEquals(0, processor.getAverageMarketValues(new int[0]).length);
+		assertEquals(0, processor.getMarketValuesPerCapita(new int[0]).length);
+		assertEquals(0, processor.getVaccinationsPerCapita(true, zips, new ArrayList<>()).length);
+		assertEquals(0, processor.getVaccinationsPerCapita(true, new int[0], dates)[0].length);
+	}
+
+	/* callers asking for the same key at the same time share a single computation */
+	@Test(timeout = 60000)
+	public void testSingleFlight() throws Exception {
+		ResultHolder<Integer, Long> holder = new ResultHolder<>();
+		AtomicInteger computations = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService callers = Executors.newFixedThreadPool(8);
+		List<Future<Long>> results = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			results.add(callers.submit(() -> {
+				start.await();
+				return holder.computeIfAbsent(7, key -> {
+					computations.incrementAndGet();
+					try {
+						Thread.sleep(200);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return 49L;
+				});
+			}));
+		}
+		start.countDown();
+		for (Future<Long> result : results) assertEquals(Long.valueOf(49), result.get());
+		assertEquals(1, computations.get());
+		assertEquals(Long.valueOf(49), holder.get(7));
+		callers.shutdown();
+	}
+
+	/* failed computations are not kept, the next caller computes again */
+	@Test
+	public void testFailureNotKept() {
+		ResultHolder<Integer, Long> holder = new ResultHolder<>();
+		try {
+			holder.computeIfAbsent(1, key -> {
+				throw new CompletionException(new IOException("load failed"));
+			});
+			fail("failure should be thrown");
+		} catch (CompletionException e) {
+			assertEquals(false, holder.contains(1));
+		}
+		assertEquals(Long.valueOf(2), holder.computeIfAbsent(1, key -> 2L));
+	}
+}
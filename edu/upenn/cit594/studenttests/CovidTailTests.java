@@ -0,0 +1,102 @@
+package edu.upenn.cit594.studenttests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import edu.upenn.cit594.datamanagement.CovidCSVParser;
+import edu.upenn.cit594.datamanagement.CovidJsonParser;
+import edu.upenn.cit594.datamanagement.CovidParser;
+import edu.upenn.cit594.datamanagement.ParserOptions;
+import edu.upenn.cit594.util.CovidStore;
+
+public class CovidTailTests {
+
+	private File file;
+
+	@After
+	public void deleteFile() {
+		if (file != null) file.delete();
+	}
+
+	/* appended rows are returned once, a row that is still being written waits for its line end */
+	@Test
+	public void testCsvTail() throws Exception {
+		file = File.createTempFile("covid", ".csv");
+		append("zip_code,etl_timestamp,partially_vaccinated,fully_vaccinated\n"
+				+ "19103,2021-03-01 12:00:00,5,6\n");
+		CovidParser parser = new CovidCSVParser(file.getPath());
+		assertEquals(1, parser.getCovidData().size());
+		assertEquals(0, parser.getAppendedData().size());
+
+		append("19104,2021-03-02 12:00:00,7,8\n19105,\"2021-03-02");
+		CovidStore appended = parser.getAppendedData();
+		assertEquals(1, appended.size());
+		assertEquals(19104, appended.getZipCode(0));
+		assertEquals(0, parser.getAppendedData().size());
+
+		append(" 12:00:00\",9,10\r\n");
+		appended = parser.getAppendedData();
+		assertEquals(1, appended.size());
+		assertEquals(19105, appended.getZipCode(0));
+		assertEquals(20210302, appended.getDate(0));
+		assertEquals(10, appended.getFullyVaccinated(0));
+	}
+
+	/* a followed file is first read up to its last complete row, the rest of a partial row is read once it is complete */
+	@Test
+	public void testPartialRowAtFirstLoad() throws Exception {
+		file = File.createTempFile("covid", ".csv");
+		append("zip_code,etl_timestamp,partially_vaccinated,fully_vaccinated\n"
+				+ "19104,2021-03-01 12:00:00,5,6\n"
+				+ "19103,2021-03-01 12:00:00,12");
+		ParserOptions options = new ParserOptions();
+		options.setFollow(true);
+		CovidParser parser = new CovidCSVParser(file.getPath(), options);
+		CovidStore data = parser.getCovidData();
+		assertEquals(1, data.size());
+		assertEquals(19104, data.getZipCode(0));
+		assertEquals(0, parser.getAppendedData().size());
+
+		append("34,567\n");
+		CovidStore appended = parser.getAppendedData();
+		assertEquals(1, appended.size());
+		assertEquals(19103, appended.getZipCode(0));
+		assertEquals(1234, appended.getPartiallyVaccinated(0));
+		assertEquals(567, appended.getFullyVaccinated(0));
+
+		// files that are not followed are read as a whole 
+		assertEquals(2, new CovidCSVParser(file.getPath()).getCovidData().size());
+	}
+
+	/* JSON Lines objects are appended after the initial document */
+	@Test
+	public void testJsonTail() throws Exception {
+		file = File.createTempFile("covid", ".json");
+		append("{\"zip_code\": 19103, \"etl_timestamp\": \"2021-03-01 12:00:00\", \"fully_vaccinated\": 6}\n");
+		CovidParser parser = new CovidJsonParser(file.getPath());
+		assertEquals(1, parser.getCovidData().size());
+
+		append("{\"zip_code\": 19104, \"note\": \"}{\", \"etl_timestamp\": \"2021-03-02 12:00:00\", \"fully_vaccinated\": 8}\n"
+				+ "{\"zip_code\": 19105, \"etl_timestamp\"");
+		CovidStore appended = parser.getAppendedData();
+		assertEquals(1, appended.size());
+		assertEquals(8, appended.getFullyVaccinated(0));
+
+		append(": \"2021-03-02 12:00:00\"}\n");
+		appended = parser.getAppendedData();
+		assertEquals(1, appended.size());
+		assertEquals(19105, appended.getZipCode(0));
+	}
+
+	private void append(String text) throws IOException {
+		try (FileWriter out = new FileWriter(file, true)) {
+			out.write(text);
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package edu.upenn.cit594.studenttests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.upenn.cit594.datamanagement.FieldDecoder;
+
+public class FieldDecoderTests {
+
+	private static final String[] DOUBLES = { "0", "1", "-1", "+2.5", "123456.78", "0.1", ".5", "5.", "1e3", "-2.5E-3",
+			"12345678901234567890", "0.30000000000000004", "1.7976931348623157E308", "4.9e-324", "", "-", ".", "abc",
+			"1,000", "12a", "NaN", "Infinity", "0x1p3", " 7 ", "1d", "--1" };
+
+	private static final String[] INTS = { "0", "7", "-7", "+7", "2147483647", "-2147483648", "2147483648", "-2147483649",
+			"99999999999999999999", "", "-", "+", "1.0", "12a", " 1", "\u0663" };
+
+	/* plain decimals match Double.parseDouble bit for bit, everything else is NaN where parseDouble fails */
+	@Test
+	public void testParseDoubleMatchesJdk() {
+		Random random = new Random(594);
+		for (int i = 0; i < 100000; i++) {
+			String value = random.nextInt(1000000) + "." + random.nextInt(100000);
+			assertEquals(value, Double.doubleToLongBits(Double.parseDouble(value)),
+					Double.doubleToLongBits(parse(value)));
+		}
+		for (String value : DOUBLES) {
+			Double expected;
+			try {
+				expected = Double.parseDouble(value);
+				if (Double.isNaN(expected) || Double.isInfinite(expected) || value.contains("x")) expected = Double.NaN;
+			} catch (NumberFormatException e) {
+				expected = Double.NaN;
+			}
+			assertEquals(value, expected, parse(value), 0);
+		}
+	}
+
+	/* ints match Integer.parseInt, failures are INVALID */
+	@Test
+	public void testParseIntMatchesJdk() {
+		for (String value : INTS) {
+			long expected;
+			try {
+				expected = Integer.parseInt(value);
+			} catch (NumberFormatException e) {
+				expected = FieldDecoder.INVALID;
+			}
+			// Integer.parseInt also accepts non-ASCII digits, fields are decoded as ASCII only
+			if (value.equals("\u0663")) expected = FieldDecoder.INVALID;
+			assertEquals(value, expected, FieldDecoder.parseInt(value.toCharArray(), 0, value.length()));
+		}
+	}
+
+	@Test
+	public void testZipAndTimestamp() {
+		char[] chars = "x19104-1234".toCharArray();
+		assertTrue(FieldDecoder.startsWithZip(chars, 1, chars.length));
+		assertFalse(FieldDecoder.isZip(chars, 1, chars.length));
+		assertTrue(FieldDecoder.isZip(chars, 1, 6));
+		assertEquals(19104, FieldDecoder.parseZip(chars, 1));
+		assertFalse(FieldDecoder.startsWithZip(chars, 0, chars.length));
+
+		assertTrue(FieldDecoder.isTimestamp("2021-03-25 10:00:00"));
+		assertFalse(FieldDecoder.isTimestamp("2021-03-25"));
+		assertFalse(FieldDecoder.isTimestamp("2021/03/25 10:00:00"));
+		char[] timestamp = "\"2021-03-25 10:00:00\"".toCharArray();
+		assertTrue(FieldDecoder.isTimestamp(timestamp, 1, timestamp.length - 1));
+	}
+
+	/* invalid-heavy fields, decoded through exceptions and through FieldDecoder */
+	@Test
+	public void testDecodingCost() {
+		Random random = new Random(594);
+		String[] fields = new String[200000];
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = random.nextInt(3) == 0 ? String.valueOf(random.nextInt(900000)) : (random.nextBoolean() ? "" : "n/a");
+		}
+		char[][] buffers = new char[fields.length][];
+		for (int i = 0; i < fields.length; i++) buffers[i] = fields[i].toCharArray();
+
+		double exceptions = 0, decoder = 0;
+		long exceptionTime = 0, decoderTime = 0;
+		for (int round = 0; round < 5; round++) {
+			long start = System.nanoTime();
+			for (String field : fields) {
+				try {
+					exceptions += Double.parseDouble(field);
+				} catch (NumberFormatException e) {
+					exceptions += 0;
+				}
+			}
+			exceptionTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (char[] field : buffers) {
+				double value = FieldDecoder.parseDouble(field, 0, field.length);
+				decoder += Double.isNaN(value) ? 0 : value;
+			}
+			decoderTime = System.nanoTime() - start;
+		}
+		assertEquals(exceptions, decoder, 0);
+		System.out.printf("exceptions: %d ns/field, decoder: %d ns/field%n", exceptionTime / fields.length,
+				decoderTime / fields.length);
+	}
+
+	private static double parse(String value) {
+		return FieldDecoder.parseDouble(value.toCharArray(), 0, value.length());
+	}
+}
@@ -0,0 +1,79 @@
+package edu.upenn.cit594.studenttests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.upenn.cit594.util.ParallelAggregator;
+
+public class ParallelAggregatorTests {
+
+	/* sums with values of very different magnitudes, so that the order of additions shows in the result */
+	private static double[] values(int count) {
+		Random random = new Random(594);
+		double[] values = new double[count];
+		for (int i = 0; i < count; i++) values[i] = random.nextInt(10) == 0 ? Double.NaN : random.nextDouble() * Math.pow(10, random.nextInt(12));
+		return values;
+	}
+
+	private static ParallelAggregator.Chunk sum(double[] values) {
+		return (from, to, result) -> {
+			for (int i = from; i < to; i++) {
+				if (Double.isNaN(values[i])) continue;
+				result[0] += values[i];
+				result[1]++;
+			}
+		};
+	}
+
+	/* results are the same bit for bit for any number of threads */
+	@Test(timeout = 60000)
+	public void testDeterministic() {
+		double[] values = values(3000001);
+		double[] expected = new ParallelAggregator(1).aggregate(0, values.length, sum(values));
+		for (int threads : new int[] { 2, 3, 8 }) {
+			ParallelAggregator aggregator = new ParallelAggregator(threads);
+			for (int round = 0; round < 5; round++) {
+				double[] actual = aggregator.aggregate(0, values.length, sum(values));
+				assertEquals(Double.doubleToLongBits(expected[0]), Double.doubleToLongBits(actual[0]));
+				assertEquals(expected[1], actual[1], 0);
+			}
+			aggregator.shutdown();
+		}
+	}
+
+	/* ranges of a single chunk are summed in index order, empty ranges are 0 */
+	@Test
+	public void testSmallRanges() {
+		double[] values = values(ParallelAggregator.CHUNK);
+		double[] plain = new double[2];
+		sum(values).aggregate(0, values.length, plain);
+		ParallelAggregator aggregator = new ParallelAggregator(4);
+		double[] result = aggregator.aggregate(0, values.length, sum(values));
+		assertEquals(Double.doubleToLongBits(plain[0]), Double.doubleToLongBits(result[0]));
+		assertEquals(0, aggregator.aggregate(5, 5, sum(values))[1], 0);
+		aggregator.shutdown();
+	}
+
+	/* large ranges are split between all cores */
+	@Test(timeout = 60000)
+	public void testTiming() {
+		double[] values = values(20000000);
+		int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+		ParallelAggregator sequential = new ParallelAggregator(1), parallel = new ParallelAggregator(threads);
+		long sequentialTime = Long.MAX_VALUE, parallelTime = Long.MAX_VALUE;
+		for (int round = 0; round < 5; round++) {
+			long start = System.nanoTime();
+			sequential.aggregate(0, values.length, sum(values));
+			sequentialTime = Math.min(sequentialTime, System.nanoTime() - start);
+			start = System.nanoTime();
+			parallel.aggregate(0, values.length, sum(values));
+			parallelTime = Math.min(parallelTime, System.nanoTime() - start);
+		}
+		parallel.shutdown();
+		System.out.println("Sequential aggregation (ms): " + sequentialTime / 1000000);
+		System.out.println("Parallel aggregation with " + threads + " threads (ms): " + parallelTime / 1000000);
+	}
+}
@@ -0,0 +1,91 @@
+package edu.upenn.cit594.studenttests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.upenn.cit594.datamanagement.ParserOptions;
+import edu.upenn.cit594.datamanagement.PropertyParser;
+import edu.upenn.cit594.util.PropertyStore;
+
+public class ParallelParserTests {
+
+	private File file;
+
+	/*
+	 * Properties file with quoted commas, quoted newlines, escaped quotes and mixed line endings,
+	 * large enough to be split into several ranges
+	 */
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("properties", ".csv");
+		Random random = new Random(594);
+		String[] notes = { "plain", "\"quoted, comma\"", "\"multi\nline\r\nnote\"", "\"say \"\"hi\"\"\"", "" };
+		try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+			out.print("objectid,\"address\nline\",market_value,notes,total_livable_area,zip_code\r\n");
+			for (int i = 0; i < 200000; i++) {
+				String zip = random.nextInt(20) == 0 ? "x1910" : String.valueOf(19100 + random.nextInt(60));
+				String market = random.nextInt(4) == 0 ? "" : String.valueOf(random.nextInt(900000));
+				String area = random.nextInt(5) == 0 ? "abc" : String.valueOf(random.nextInt(5000));
+				out.print(i + ",\"" + i + " Main St\"," + market + "," + notes[random.nextInt(notes.length)] + ","
+						+ area + "," + zip + (random.nextBoolean() ? "\n" : "\r\n"));
+			}
+		}
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	/* parallel parse must return the same rows in the same order as sequential parse */
+	@Test(timeout = 60000)
+	public void testParallelMatchesSequential() throws Exception {
+		long start = System.nanoTime();
+		PropertyStore sequential = new PropertyParser(file.getPath()).getPropertyData();
+		long sequentialTime = System.nanoTime() - start;
+
+		int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+		start = System.nanoTime();
+		ParserOptions options = new ParserOptions();
+		options.setThreads(threads);
+		PropertyStore parallel = new PropertyParser(file.getPath(), options).getPropertyData();
+		long parallelTime = System.nanoTime() - start;
+
+		System.out.println("Sequential parse (ms): " + sequentialTime / 1000000);
+		System.out.println("Parallel parse with " + threads + " threads (ms): " + parallelTime / 1000000);
+
+		assertSameRows(sequential, parallel);
+	}
+
+	/* pipelined parse must return the same rows in the same order as sequential parse */
+	@Test(timeout = 60000)
+	public void testPipelineMatchesSequential() throws Exception {
+		PropertyStore sequential = new PropertyParser(file.getPath()).getPropertyData();
+
+		ParserOptions options = new ParserOptions();
+		options.setPipeline(true);
+		options.setThreads(3);
+		PropertyStore pipelined = new PropertyParser(file.getPath(), options).getPropertyData();
+		assertSameRows(sequential, pipelined);
+	}
+
+	private static void assertSameRows(PropertyStore sequential, PropertyStore other) {
+		assertTrue("Expected rows to be parsed", sequential.size() > 0);
+		assertEquals("Row count differed", sequential.size(), other.size());
+		for (int i = 0; i < sequential.size(); i++) {
+			assertTrue("Row " + i + " differed", sequential.getZipCode(i) == other.getZipCode(i)
+					&& Double.compare(sequential.getMarketValue(i), other.getMarketValue(i)) == 0
+					&& Double.compare(sequential.getTotalLivableArea(i), other.getTotalLivableArea(i)) == 0);
+		}
+	}
+}
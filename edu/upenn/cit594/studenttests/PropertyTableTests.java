@@ -0,0 +1,104 @@
+package edu.upenn.cit594.studenttests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.upenn.cit594.util.PropertyColumn;
+import edu.upenn.cit594.util.PropertyCursor;
+import edu.upenn.cit594.util.PropertyStore;
+import edu.upenn.cit594.util.PropertyTable;
+import edu.upenn.cit594.util.ZipIndex;
+
+public class PropertyTableTests {
+
+	/* sums and counts skip missing values, zip codes without properties have none */
+	@Test
+	public void testAggregates() {
+		PropertyStore store = new PropertyStore();
+		store.add(19104, 100, Double.NaN);
+		store.add(19103, 10, 1);
+		store.add(19104, Double.NaN, 5);
+		store.add(19104, 50, 7);
+		PropertyTable table = new PropertyTable(store);
+
+		assertEquals(4, table.size());
+		assertEquals(2, table.getIndex().size());
+		assertEquals(150, table.getSum(19104, PropertyColumn.MARKET_VALUE), 0);
+		assertEquals(2, table.getCount(19104, PropertyColumn.MARKET_VALUE));
+		assertEquals(12, table.getSum(19104, PropertyColumn.LIVABLE_AREA), 0);
+		assertEquals(1, table.getCount(19103, PropertyColumn.LIVABLE_AREA));
+		assertEquals(0, table.getCount(19102, PropertyColumn.LIVABLE_AREA));
+		assertEquals(0, table.getSum(-1, PropertyColumn.MARKET_VALUE), 0);
+	}
+
+	/* cursor of a zip code visits only its properties in file order */
+	@Test
+	public void testCursor() {
+		PropertyStore store = new PropertyStore();
+		store.add(19104, 1, 0);
+		store.add(19103, 2, 0);
+		store.add(19104, 3, 0);
+		PropertyTable table = new PropertyTable(store);
+
+		PropertyCursor cursor = table.cursor(19104);
+		assertTrue(cursor.next());
+		assertEquals(1, cursor.marketValue(), 0);
+		assertTrue(cursor.next());
+		assertEquals(3, cursor.marketValue(), 0);
+		assertFalse(cursor.next());
+		assertFalse(table.cursor(19102).next());
+	}
+
+	/* ranges include both ends and may start or end at zip codes without properties */
+	@Test
+	public void testRange() {
+		PropertyStore store = new PropertyStore();
+		store.add(19103, 10, 1);
+		store.add(19154, 20, Double.NaN);
+		store.add(19104, 30, 2);
+		store.add(19200, 40, 4);
+		PropertyTable table = new PropertyTable(store);
+
+		assertEquals(60, table.getSum(19103, 19154, PropertyColumn.MARKET_VALUE), 0);
+		assertEquals(2, table.getCount(19102, 19199, PropertyColumn.LIVABLE_AREA));
+		assertEquals(30, table.getSum(19104, 19104, PropertyColumn.MARKET_VALUE), 0);
+		assertEquals(0, table.getCount(19155, 19199, PropertyColumn.MARKET_VALUE));
+		assertEquals(0, table.getCount(19154, 19103, PropertyColumn.MARKET_VALUE));
+		assertEquals(100, table.getSum(0, Integer.MAX_VALUE, PropertyColumn.MARKET_VALUE), 0);
+
+		int from = ZipIndex.prefixStart("191"), to = ZipIndex.prefixEnd("191");
+		assertEquals(19100, from);
+		assertEquals(19199, to);
+		PropertyCursor cursor = table.cursor(from, to);
+		int rows = 0;
+		while(cursor.next()) rows++;
+		assertEquals(3, rows);
+	}
+
+	/* grouped properties kept off the heap read the same as on the heap */
+	@Test
+	public void testOffHeap() {
+		PropertyStore store = new PropertyStore();
+		for(int i = 0; i < 1000; i++) store.add(19100 + i % 37, i % 5 == 0 ? Double.NaN : i * 1.5, i);
+		PropertyTable heap = new PropertyTable(store, false), offHeap = new PropertyTable(store, true);
+
+		assertEquals(heap.size(), offHeap.size());
+		for(int zip = 19100; zip < 19137; zip++) {
+			for(PropertyColumn column : PropertyColumn.values()) {
+				assertEquals(heap.getSum(zip, column), offHeap.getSum(zip, column), 0);
+				assertEquals(heap.getCount(zip, column), offHeap.getCount(zip, column));
+			}
+		}
+		PropertyCursor expected = heap.cursor(), actual = offHeap.cursor();
+		while(expected.next()) {
+			assertTrue(actual.next());
+			assertEquals(expected.getZipCode(), actual.getZipCode());
+			assertEquals(expected.getMarketValue(), actual.getMarketValue());
+			assertEquals(expected.totalLivableArea(), actual.totalLivableArea(), 0);
+		}
+		assertFalse(actual.next());
+	}
+}
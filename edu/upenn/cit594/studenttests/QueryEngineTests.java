@@ -0,0 +1,188 @@
+package edu.upenn.cit594.studenttests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.upenn.cit594.processor.Aggregate;
+import edu.upenn.cit594.processor.Query;
+import edu.upenn.cit594.processor.QueryColumn;
+import edu.upenn.cit594.processor.QueryEngine;
+import edu.upenn.cit594.processor.QueryResult;
+import edu.upenn.cit594.util.CovidStore;
+import edu.upenn.cit594.util.ParallelAggregator;
+import edu.upenn.cit594.util.PopulationData;
+import edu.upenn.cit594.util.PopulationTable;
+import edu.upenn.cit594.util.PropertyStore;
+import edu.upenn.cit594.util.PropertyTable;
+import edu.upenn.cit594.util.VaccinationMatrix;
+
+public class QueryEngineTests {
+
+	private static final int ZIPS = 30, DAYS = 10;
+
+	private PropertyStore properties = new PropertyStore();
+	private List<PopulationData> population = new ArrayList<>();
+	private CovidStore covid = new CovidStore();
+	private QueryEngine engine;
+
+	@Before
+	public void createData() {
+		Random random = new Random(594);
+		for (int i = 0; i < 20000; i++) {
+			double market = random.nextInt(10) == 0 ? Double.NaN : random.nextInt(900000);
+			double area = random.nextInt(10) == 0 ? Double.NaN : random.nextInt(5000);
+			properties.add(19100 + random.nextInt(ZIPS), market, area);
+		}
+		for (int i = 0; i < 2 * ZIPS; i++) population.add(new PopulationData(19100 + random.nextInt(ZIPS), random.nextInt(9000)));
+		for (int i = 0; i < 3 * ZIPS * DAYS; i++) {
+			covid.add(19100 + random.nextInt(ZIPS), 20210301 + random.nextInt(DAYS), random.nextInt(900), random.nextInt(900));
+		}
+		PropertyTable propertyTable = new PropertyTable(properties);
+		PopulationTable populationTable = new PopulationTable(population);
+		VaccinationMatrix matrix = new VaccinationMatrix(covid);
+		ParallelAggregator aggregator = new ParallelAggregator(4);
+		engine = new QueryEngine(() -> propertyTable, () -> populationTable, () -> matrix, () -> aggregator);
+	}
+
+	/* accumulator of the values a group should get, computed by brute force */
+	private static class Expected {
+		long count;
+		double sum, min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+
+		void add(double value) {
+			if (Double.isNaN(value)) return;
+			count++;
+			sum += value;
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+	}
+
+	private static Query query(Aggregate aggregate, QueryColumn column, int from, int to, boolean byZip) {
+		Query query = new Query(aggregate, column);
+		query.setZipCodes(from, to);
+		query.setGroupByZipCode(byZip);
+		return query;
+	}
+
+	/* every aggregate of every zip code equals brute force, with and without filters */
+	@Test
+	public void testPropertyGroups() {
+		for (Aggregate aggregate : Aggregate.values()) {
+			Query plain = query(aggregate, QueryColumn.MARKET_VALUE, 19105, 19120, true);
+			Query filtered = query(aggregate, QueryColumn.MARKET_VALUE, 19105, 19120, true);
+			filtered.addFilter(QueryColumn.LIVABLE_AREA, area -> area > 2500);
+			QueryResult plainResult = engine.execute(plain), filteredResult = engine.execute(filtered);
+			assertEquals(16, plainResult.size());
+			for (int zip = 19105; zip <= 19120; zip++) {
+				Expected all = new Expected(), large = new Expected();
+				for (int i = 0; i < properties.size(); i++) {
+					if (properties.getZipCode(i) != zip) continue;
+					all.add(properties.getMarketValue(i));
+					if (properties.getTotalLivableArea(i) > 2500) large.add(properties.getMarketValue(i));
+				}
+				assertEquals(value(aggregate, all), plainResult.getValueOrDefault(zip, QueryResult.ALL, -1), 1e-6);
+				assertEquals(value(aggregate, large), filteredResult.getValueOrDefault(zip, QueryResult.ALL, -1), 1e-6);
+			}
+		}
+	}
+
+	private static double value(Aggregate aggregate, Expected expected) {
+		switch (aggregate) {
+		case SUM: return expected.sum;
+		case COUNT: return expected.count;
+		case AVG: return expected.sum / expected.count;
+		case MIN: return expected.min;
+		default: return expected.max;
+		}
+	}
+
+	/* a query without grouping has a single group, also for an empty range */
+	@Test
+	public void testSingleGroup() {
+		QueryResult range = engine.execute(query(Aggregate.COUNT, QueryColumn.LIVABLE_AREA, 19100, 19109, false));
+		Expected expected = new Expected(), priced = new Expected();
+		for (int i = 0; i < properties.size(); i++) {
+			if (properties.getZipCode(i) > 19109) continue;
+			expected.add(properties.getTotalLivableArea(i));
+			if (!Double.isNaN(properties.getMarketValue(i))) priced.add(properties.getTotalLivableArea(i));
+		}
+		assertEquals(1, range.size());
+		assertEquals(QueryResult.ALL, range.getZipCode(0));
+		assertEquals(expected.count, range.getCount(0));
+		assertEquals(expected.sum, range.getSum(0), 1e-3);
+
+		Query filtered = query(Aggregate.MAX, QueryColumn.LIVABLE_AREA, 19100, 19109, false);
+		filtered.addFilter(QueryColumn.MARKET_VALUE, value -> !Double.isNaN(value));
+		assertEquals(priced.max, engine.execute(filtered).getValue(0), 0);
+
+		QueryResult empty = engine.execute(query(Aggregate.AVG, QueryColumn.MARKET_VALUE, 19200, 19100, false));
+		assertEquals(1, empty.size());
+		assertEquals(0, empty.getCount(0));
+		assertEquals(Double.NaN, empty.getValue(0), 0);
+	}
+
+	/* population rows are counted per zip code, numeric filters apply to each row */
+	@Test
+	public void testPopulation() {
+		Query query = query(Aggregate.MIN, QueryColumn.POPULATION, 0, 99999, true);
+		query.addFilter(QueryColumn.POPULATION, value -> value > 100);
+		QueryResult result = engine.execute(query);
+		QueryResult totals = engine.execute(query(Aggregate.SUM, QueryColumn.POPULATION, 0, 99999, false));
+		long total = 0;
+		for (int zip = 19100; zip < 19100 + ZIPS; zip++) {
+			Expected expected = new Expected();
+			for (PopulationData row : population) {
+				if (row.getZipCode() == zip && row.getPopulation() > 100) expected.add(row.getPopulation());
+				if (row.getZipCode() == zip) total += row.getPopulation();
+			}
+			assertEquals(expected.count == 0 ? -1 : expected.min, result.getValueOrDefault(zip, QueryResult.ALL, -1), 0);
+		}
+		assertEquals(total, totals.getSum(0), 0);
+	}
+
+	/* covid cells are grouped by zip code and date, date ranges include both ends */
+	@Test
+	public void testCovidGroups() {
+		VaccinationMatrix matrix = new VaccinationMatrix(covid);
+		Query query = query(Aggregate.SUM, QueryColumn.FULLY_VACCINATED, 0, 99999, true);
+		query.setGroupByDate(true);
+		query.setDates("2021-03-03", "2021-03-07");
+		query.addFilter(QueryColumn.PARTIALLY_VACCINATED, count -> count > 0);
+		QueryResult result = engine.execute(query);
+
+		Query byDate = new Query(Aggregate.COUNT, QueryColumn.FULLY_VACCINATED);
+		byDate.setGroupByDate(true);
+		QueryResult dates = engine.execute(byDate);
+		assertEquals(DAYS, dates.size());
+		for (int day = 1; day <= DAYS; day++) {
+			int date = 20210300 + day;
+			assertEquals(ZIPS, dates.getValueOrDefault(QueryResult.ALL, date, -1), 0);
+			for (int zip = 19100; zip < 19100 + ZIPS; zip++) {
+				double expected = day < 3 || day > 7 || matrix.getCount(true, zip, date) == 0 ? -1 : matrix.getCount(false, zip, date);
+				assertEquals(expected, result.getValueOrDefault(zip, date, -1), 0);
+			}
+		}
+	}
+
+	/* filters and dates of other data sets are rejected */
+	@Test
+	public void testInvalidQueries() {
+		Query query = new Query(Aggregate.SUM, QueryColumn.MARKET_VALUE);
+		try {
+			query.setDates("2021-03-01", "2021-03-02");
+			fail("failure should be thrown");
+		} catch (IllegalArgumentException e) {}
+		try {
+			query.addFilter(QueryColumn.POPULATION, value -> true);
+			fail("failure should be thrown");
+		} catch (IllegalArgumentException e) {}
+	}
+}
@@ -0,0 +1,80 @@
+package edu.upenn.cit594.studenttests;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import edu.upenn.cit594.datamanagement.ResultCache;
+import edu.upenn.cit594.datamanagement.ResultHolder;
+
+public class ResultCacheTests {
+
+	private static Long slow(long value) {
+		try {
+			Thread.sleep(50);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return value;
+	}
+
+	/* results are evicted once their total weight exceeds the budget */
+	@Test
+	public void testBudget() {
+		ResultCache cache = new ResultCache(1000);
+		ResultHolder<Integer, Long> holder = new ResultHolder<>(cache, value -> value);
+		for (int key = 1; key <= 5; key++) holder.computeIfAbsent(key, k -> 400L);
+		assertEquals(800, cache.getWeight());
+		assertEquals(3, holder.getEvictions());
+		int kept = 0;
+		for (int key = 1; key <= 5; key++) if (holder.contains(key)) kept++;
+		assertEquals(2, kept);
+	}
+
+	/* of results with the same weight, the one that was cheap to compute is evicted first */
+	@Test
+	public void testCostOrder() {
+		ResultCache cache = new ResultCache(1000);
+		ResultHolder<Integer, Long> holder = new ResultHolder<>(cache, value -> 400);
+		holder.computeIfAbsent(1, ResultCacheTests::slow);
+		holder.computeIfAbsent(2, key -> 2L);
+		holder.computeIfAbsent(3, ResultCacheTests::slow);
+		assertEquals(true, holder.contains(1));
+		assertEquals(false, holder.contains(2));
+		assertEquals(true, holder.contains(3));
+	}
+
+	/* evicted results are computed again, hits and misses are counted per request */
+	@Test
+	public void testCounters() {
+		ResultCache cache = new ResultCache(100);
+		ResultHolder<Integer, Long> holder = new ResultHolder<>(cache, value -> 60);
+		holder.computeIfAbsent(1, key -> 1L);
+		holder.computeIfAbsent(1, key -> 1L);
+		holder.computeIfAbsent(2, ResultCacheTests::slow);
+		holder.computeIfAbsent(1, key -> 1L);
+		assertEquals(1, holder.getHits());
+		assertEquals(3, holder.getMisses());
+		assertEquals(2, holder.getEvictions());
+	}
+
+	/* holders share the budget, removed results give their weight back, shedding keeps half */
+	@Test
+	public void testSharedBudget() {
+		ResultCache cache = new ResultCache(10000);
+		ResultHolder<Integer, Long> first = new ResultHolder<>(cache, value -> 100);
+		ResultHolder<Integer, Long> second = new ResultHolder<>(cache, value -> 100);
+		for (int key = 0; key < 10; key++) {
+			first.computeIfAbsent(key, k -> 0L);
+			second.computeIfAbsent(key, k -> 0L);
+		}
+		assertEquals(2000, cache.getWeight());
+		first.removeIf(key -> key % 2 == 0);
+		assertEquals(1500, cache.getWeight());
+		cache.shed();
+		assertEquals(700, cache.getWeight());
+		cache.setCapacity(250);
+		assertEquals(200, cache.getWeight());
+		assertEquals(13, first.getEvictions() + second.getEvictions());
+	}
+}
@@ -0,0 +1,55 @@
+package edu.upenn.cit594.studenttests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.upenn.cit594.processor.DoubleSelector;
+import edu.upenn.cit594.processor.LivableAreaSelector;
+import edu.upenn.cit594.processor.MarketValueSelector;
+import edu.upenn.cit594.processor.Selector;
+import edu.upenn.cit594.util.PropertyData;
+import edu.upenn.cit594.util.PropertyStore;
+
+/*
+ * times aggregation loops of boxed selectors, which unbox record getters, against primitive selectors
+ * over columns and over objects. Not a test, results of both paths are checked by SelectorTests
+ */
+public class SelectorBenchmark {
+
+	private static final int ROWS = 2000000, ROUNDS = 15;
+
+	public static void main(String[] args) {
+		PropertyStore store = new PropertyStore(ROWS);
+		List<PropertyData> objects = new ArrayList<>(ROWS);
+		SelectorTests.createData(ROWS, store, objects);
+		Selector[] baselines = { SelectorTests.BOXED_MARKET_VALUE, SelectorTests.BOXED_LIVABLE_AREA };
+		DoubleSelector[] selectors = { new MarketValueSelector(), new LivableAreaSelector() };
+		String[] names = { "market value", "livable area" };
+
+		// columns are timed first, before loops over objects add their types to the profiles 
+		for (int s = 0; s < selectors.length; s++) {
+			long boxed = Long.MAX_VALUE, primitive = Long.MAX_VALUE;
+			for (int round = 0; round < ROUNDS; round++) {
+				long start = System.nanoTime();
+				SelectorTests.boxed(store.cursor(), baselines[s]);
+				boxed = Math.min(boxed, System.nanoTime() - start);
+				start = System.nanoTime();
+				SelectorTests.primitive(store.cursor(), selectors[s]);
+				primitive = Math.min(primitive, System.nanoTime() - start);
+			}
+			System.out.printf("Columns, %s (ns/row): boxed %.2f, primitive %.2f%n", names[s], (double) boxed / ROWS, (double) primitive / ROWS);
+		}
+		for (int s = 0; s < selectors.length; s++) {
+			long boxed = Long.MAX_VALUE, primitive = Long.MAX_VALUE;
+			for (int round = 0; round < ROUNDS; round++) {
+				long start = System.nanoTime();
+				SelectorTests.boxed(objects, baselines[s]);
+				boxed = Math.min(boxed, System.nanoTime() - start);
+				start = System.nanoTime();
+				SelectorTests.primitive(objects, selectors[s]);
+				primitive = Math.min(primitive, System.nanoTime() - start);
+			}
+			System.out.printf("Objects, %s (ns/row): boxed %.2f, primitive %.2f%n", names[s], (double) boxed / ROWS, (double) primitive / ROWS);
+		}
+	}
+}
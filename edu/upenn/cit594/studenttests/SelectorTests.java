@@ -0,0 +1,121 @@
+package edu.upenn.cit594.studenttests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.upenn.cit594.processor.DoubleSelector;
+import edu.upenn.cit594.processor.LivableAreaSelector;
+import edu.upenn.cit594.processor.MarketValueSelector;
+import edu.upenn.cit594.processor.Selector;
+import edu.upenn.cit594.util.PropertyCursor;
+import edu.upenn.cit594.util.PropertyData;
+import edu.upenn.cit594.util.PropertyRecord;
+import edu.upenn.cit594.util.PropertyStore;
+
+public class SelectorTests {
+
+	static final int ROWS = 200000;
+
+	/* selectors of the boxed path as it was before primitive selectors, unboxing record getters */
+	static final Selector BOXED_MARKET_VALUE = new Selector() {
+		public Double getData(PropertyRecord data) {
+			return data.getMarketValue();
+		}
+	};
+	static final Selector BOXED_LIVABLE_AREA = new Selector() {
+		public Double getData(PropertyRecord data) {
+			return data.getTotalLivableArea();
+		}
+	};
+
+	private PropertyStore store;
+	private List<PropertyData> objects;
+
+	@Before
+	public void createData() {
+		store = new PropertyStore(ROWS);
+		objects = new ArrayList<>(ROWS);
+		createData(ROWS, store, objects);
+	}
+
+	/* columns and objects with the same values, a quarter of them missing */
+	static void createData(int rows, PropertyStore store, List<PropertyData> objects) {
+		Random random = new Random(594);
+		for (int i = 0; i < rows; i++) {
+			double market = random.nextInt(4) == 0 ? Double.NaN : random.nextInt(900000) / 7.0;
+			double area = random.nextInt(4) == 0 ? Double.NaN : random.nextInt(5000);
+			store.add(19100 + random.nextInt(60), market, area);
+			objects.add(new PropertyData(19100, Double.isNaN(market) ? null : market, Double.isNaN(area) ? null : area));
+		}
+	}
+
+	/* primitive selectors give the same sums and counts as the boxed selectors, on columns and on objects */
+	@Test
+	public void testPrimitiveMatchesBoxed() {
+		Selector[] baselines = { BOXED_MARKET_VALUE, BOXED_LIVABLE_AREA };
+		DoubleSelector[] selectors = { new MarketValueSelector(), new LivableAreaSelector() };
+		for (int s = 0; s < selectors.length; s++) {
+			double[] expected = boxed(objects, baselines[s]);
+			double[][] actual = { primitive(objects, selectors[s]), primitive(store.cursor(), selectors[s]) };
+			assertEquals(expected[1], boxed(store.cursor(), baselines[s])[1], 0);
+			for (double[] result : actual) {
+				assertEquals(expected[0], result[0], 0);
+				assertEquals(expected[1], result[1], 0);
+			}
+		}
+	}
+
+	static double[] boxed(PropertyCursor data, Selector selector) {
+		double total = 0;
+		int count = 0;
+		while (data.next()) {
+			Double value = selector.getData(data);
+			if (value == null) continue;
+			count++;
+			total += value;
+		}
+		return new double[] { total, count };
+	}
+
+	static double[] primitive(PropertyCursor data, DoubleSelector selector) {
+		double total = 0;
+		int count = 0;
+		while (data.next()) {
+			double value = selector.getDouble(data);
+			if (!selector.isValid(value)) continue;
+			count++;
+			total += value;
+		}
+		return new double[] { total, count };
+	}
+
+	static double[] boxed(List<? extends PropertyRecord> data, Selector selector) {
+		double total = 0;
+		int count = 0;
+		for (PropertyRecord row : data) {
+			Double value = selector.getData(row);
+			if (value == null) continue;
+			count++;
+			total += value;
+		}
+		return new double[] { total, count };
+	}
+
+	static double[] primitive(List<? extends PropertyRecord> data, DoubleSelector selector) {
+		double total = 0;
+		int count = 0;
+		for (PropertyRecord row : data) {
+			double value = selector.getDouble(row);
+			if (!selector.isValid(value)) continue;
+			count++;
+			total += value;
+		}
+		return new double[] { total, count };
+	}
+}
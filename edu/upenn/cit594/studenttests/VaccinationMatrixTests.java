@@ -0,0 +1,74 @@
+package edu.upenn.cit594.studenttests;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import edu.upenn.cit594.util.CovidStore;
+import edu.upenn.cit594.util.VaccinationMatrix;
+import edu.upenn.cit594.util.VaccinationSeries;
+
+public class VaccinationMatrixTests {
+
+	/* cells keep the last non-zero count of their date and zip code */
+	@Test
+	public void testLastNonZero() {
+		CovidStore store = new CovidStore();
+		store.add(19104, 20210301, 5, 0);
+		store.add(19104, 20210301, 7, 3);
+		store.add(19104, 20210301, 0, 0);
+		store.add(19103, 20210302, 1, 2);
+		VaccinationMatrix matrix = new VaccinationMatrix(store);
+
+		assertEquals(7, matrix.getCount(true, 19104, 20210301));
+		assertEquals(3, matrix.getCount(false, 19104, 20210301));
+		assertEquals(0, matrix.getCount(true, 19103, 20210301));
+		assertEquals(2, matrix.getCount(false, 19103, 20210302));
+		assertEquals(0, matrix.getCount(true, 19102, 20210302));
+		assertEquals(-1, matrix.rowOf(20210303));
+	}
+
+	/* appended records with new dates and zip codes grow the matrix and keep existing cells */
+	@Test
+	public void testAddAll() {
+		CovidStore store = new CovidStore();
+		store.add(19104, 20210302, 5, 6);
+		VaccinationMatrix matrix = new VaccinationMatrix(store);
+
+		CovidStore appended = new CovidStore();
+		appended.add(19103, 20210301, 1, 2);
+		appended.add(19104, 20210302, 0, 8);
+		matrix.addAll(appended);
+
+		assertEquals(2, matrix.getIndex().size());
+		assertEquals(5, matrix.getCount(true, 19104, 20210302));
+		assertEquals(8, matrix.getCount(false, 19104, 20210302));
+		assertEquals(1, matrix.getCount(true, 19103, 20210301));
+		assertEquals(0, matrix.rowOf(20210301));
+	}
+
+	/* series of a zip code holds dates with non-zero counts, windows are bounded by binary search */
+	@Test
+	public void testSeries() {
+		CovidStore store = new CovidStore();
+		store.add(19104, 20210301, 5, 0);
+		store.add(19103, 20210302, 1, 0);
+		store.add(19104, 20210303, 0, 0);
+		store.add(19104, 20210304, 9, 0);
+		VaccinationMatrix matrix = new VaccinationMatrix(store);
+		VaccinationSeries series = matrix.getSeries(true);
+		int slot = matrix.getIndex().slotOf(19104);
+
+		int from = series.lowerBound(slot, 20210302), to = series.upperBound(slot, 20210310);
+		assertEquals(1, to - from);
+		assertEquals(20210304, series.getDate(from));
+		assertEquals(9, series.getCount(from));
+		assertEquals(5, series.getLatest(slot, 20210303));
+		assertEquals(0, series.getLatest(slot, 20210228));
+
+		CovidStore appended = new CovidStore();
+		appended.add(19104, 20210305, 12, 0);
+		matrix.addAll(appended);
+		assertEquals(12, matrix.getSeries(true).getLatest(slot, 20210305));
+	}
+}
@@ -0,0 +1,138 @@
+package edu.upenn.cit594.util;
+
+import java.util.Arrays;
+
+/**
+ * Columnar storage of values retrieved from covid file. Dates are stored as int keys of the form
+ * YYYYMMDD, which keep the order of dates and turn date filters into integer compares 
+ * @author andrii podhornyi 
+ *
+ */
+public class CovidStore {
+
+	/**
+	 * Columns of the store, only the first {@code size} entries are used 
+	 */
+	private int[] zipCodes;
+	private int[] dates;
+	private int[] partiallyVaccinated;
+	private int[] fullyVaccinated;
+	private int size;
+	
+	public CovidStore() {
+		this(16);
+	}
+	
+	/**
+	 * Creates empty store 
+	 * @param capacity expected number of records 
+	 */
+	public CovidStore(int capacity) {
+		capacity = Math.max(1, capacity);
+		zipCodes = new int[capacity];
+		dates = new int[capacity];
+		partiallyVaccinated = new int[capacity];
+		fullyVaccinated = new int[capacity];
+	}
+	
+	/**
+	 * Creates store of given columns. Arrays are used as they are and should have the same length 
+	 */
+	public CovidStore(int[] zipCodes, int[] dates, int[] partiallyVaccinated, int[] fullyVaccinated) {
+		this.zipCodes = zipCodes;
+		this.dates = dates;
+		this.partiallyVaccinated = partiallyVaccinated;
+		this.fullyVaccinated = fullyVaccinated;
+		this.size = zipCodes.length;
+	}
+	
+	/**
+	 * Converts YYYY-MM-DD date to its key 
+	 * @param date date in YYYY-MM-DD format 
+	 * @return key of the date 
+	 */
+	public static int dateKey(String date) {
+		int year = Integer.parseInt(date, 0, 4, 10);
+		int month = Integer.parseInt(date, 5, 7, 10);
+		int day = Integer.parseInt(date, 8, 10, 10);
+		return year * 10000 + month * 100 + day;
+	}
+	
+	/**
+	 * Converts date key back to YYYY-MM-DD format 
+	 */
+	public static String formatDate(int key) {
+		return String.format("%04d-%02d-%02d", key / 10000, key / 100 % 100, key % 100);
+	}
+	
+	/**
+	 * Adds record to the end of the store 
+	 * @param zipCode 5-digit zip code 
+	 * @param date key of the date 
+	 * @param partial number of partially vaccinated persons 
+	 * @param full number of fully vaccinated persons 
+	 */
+	public void add(int zipCode, int date, int partial, int full) {
+		if(size == zipCodes.length) grow(size + 1);
+		zipCodes[size] = zipCode;
+		dates[size] = date;
+		partiallyVaccinated[size] = partial;
+		fullyVaccinated[size] = full;
+		size++;
+	}
+	
+	/**
+	 * Adds all records of other store to the end of this store 
+	 * @param other store to be copied 
+	 */
+	public void addAll(CovidStore other) {
+		if(size + other.size > zipCodes.length) grow(size + other.size);
+		System.arraycopy(other.zipCodes, 0, zipCodes, size, other.size);
+		System.arraycopy(other.dates, 0, dates, size, other.size);
+		System.arraycopy(other.partiallyVaccinated, 0, partiallyVaccinated, size, other.size);
+		System.arraycopy(other.fullyVaccinated, 0, fullyVaccinated, size, other.size);
+		size += other.size;
+	}
+	
+	/**
+	 * Releases unused capacity. Should be called once the store is filled 
+	 */
+	public void trim() {
+		if(size == zipCodes.length) return;
+		zipCodes = Arrays.copyOf(zipCodes, size);
+		dates = Arrays.copyOf(dates, size);
+		partiallyVaccinated = Arrays.copyOf(partiallyVaccinated, size);
+		fullyVaccinated = Arrays.copyOf(fullyVaccinated, size);
+	}
+	
+	private void grow(int required) {
+		int capacity = Math.max(required, zipCodes.length * 2);
+		zipCodes = Arrays.copyOf(zipCodes, capacity);
+		dates = Arrays.copyOf(dates, capacity);
+		partiallyVaccinated = Arrays.copyOf(partiallyVaccinated, capacity);
+		fullyVaccinated = Arrays.copyOf(fullyVaccinated, capacity);
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public int getZipCode(int index) {
+		return zipCodes[index];
+	}
+	
+	/**
+	 * Returns key of the date of given record 
+	 */
+	public int getDate(int index) {
+		return dates[index];
+	}
+	
+	public int getPartiallyVaccinated(int index) {
+		return partiallyVaccinated[index];
+	}
+	
+	public int getFullyVaccinated(int index) {
+		return fullyVaccinated[index];
+	}
+}
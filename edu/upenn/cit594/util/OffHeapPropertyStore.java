@@ -0,0 +1,70 @@
+package edu.upenn.cit594.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Columnar storage of properties in direct buffers. Columns are allocated outside of the Java heap, so
+ * a large data set kept for a long session neither adds to heap size nor to the work of the garbage
+ * collector. Values are read in place, nothing is copied back onto the heap. Capacity is fixed at
+ * creation and is limited by {@code -XX:MaxDirectMemorySize} 
+ * @author andrii podhornyi 
+ *
+ */
+public class OffHeapPropertyStore implements PropertyRows {
+
+	private final IntBuffer zipCodes;
+	private final DoubleBuffer marketValues;
+	private final DoubleBuffer livableAreas;
+	private int size;
+	
+	/**
+	 * Creates empty store 
+	 * @param capacity maximum number of properties 
+	 */
+	public OffHeapPropertyStore(int capacity) {
+		zipCodes = allocate(capacity, Integer.BYTES).asIntBuffer();
+		marketValues = allocate(capacity, Double.BYTES).asDoubleBuffer();
+		livableAreas = allocate(capacity, Double.BYTES).asDoubleBuffer();
+	}
+	
+	private static ByteBuffer allocate(int capacity, int bytes) {
+		return ByteBuffer.allocateDirect(Math.multiplyExact(Math.max(1, capacity), bytes)).order(ByteOrder.nativeOrder());
+	}
+	
+	/**
+	 * Adds property to the end of the store 
+	 * @param zipCode 5-digit zip code 
+	 * @param marketValue market value, NaN if missing 
+	 * @param livableArea total livable area, NaN if missing 
+	 * @throws IndexOutOfBoundsException if the store is full 
+	 */
+	public void add(int zipCode, double marketValue, double livableArea) {
+		zipCodes.put(size, zipCode);
+		marketValues.put(size, marketValue);
+		livableAreas.put(size, livableArea);
+		size++;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public int getZipCode(int index) {
+		return zipCodes.get(index);
+	}
+	
+	@Override
+	public double getMarketValue(int index) {
+		return marketValues.get(index);
+	}
+	
+	@Override
+	public double getTotalLivableArea(int index) {
+		return livableAreas.get(index);
+	}
+}
@@ -0,0 +1,120 @@
+package edu.upenn.cit594.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs aggregations over index ranges on a fork/join pool. Ranges are cut into chunks of fixed size,
+ * each chunk is aggregated sequentially and partial results are combined in chunk order. Chunk bounds do
+ * not depend on the number of threads, so floating-point results are the same for any number of threads
+ * and any scheduling. Small ranges and single-threaded aggregators run on the calling thread 
+ * @author andrii podhornyi 
+ *
+ */
+public class ParallelAggregator {
+
+	/**
+	 * Number of indexes per chunk. Ranges up to one chunk are aggregated in index order, as by a plain loop 
+	 */
+	public static final int CHUNK = 1 << 14;
+	
+	/**
+	 * Amount of work below which ranges are aggregated by the calling thread 
+	 */
+	public static final int THRESHOLD = 4 * CHUNK;
+	
+	/**
+	 * Aggregation of a single chunk 
+	 */
+	public interface Chunk {
+		
+		/**
+		 * Adds sum of values of indexes {@code from} to {@code to - 1} to {@code result[0]} and their
+		 * number to {@code result[1]} 
+		 */
+		public void aggregate(int from, int to, double[] result);
+	}
+	
+	/**
+	 * Pool of workers, null if aggregations run on the calling thread 
+	 */
+	private final ForkJoinPool pool;
+	
+	/**
+	 * Creates aggregator 
+	 * @param threads number of workers, 1 to run aggregations on the calling thread 
+	 */
+	public ParallelAggregator(int threads) {
+		pool = threads > 1 ? new ForkJoinPool(threads) : null;
+	}
+	
+	/**
+	 * Aggregates given range chunk by chunk 
+	 * @param from first index of the range 
+	 * @param to index right after the last index of the range 
+	 * @param chunk aggregation of a single chunk 
+	 * @return sum and number of values, both 0 for empty ranges 
+	 */
+	public double[] aggregate(int from, int to, Chunk chunk) {
+		if(from >= to) return new double[2];
+		int chunks = (int) ((to - (long) from + CHUNK - 1) / CHUNK);
+		double[][] partial = new double[chunks][2];
+		forEach(chunks, to - from, c -> chunk.aggregate(from + c * CHUNK, (int) Math.min(to, from + (long) (c + 1) * CHUNK), partial[c]));
+		
+		// partial results are always combined in the same order 
+		double[] result = partial[0];
+		for(int c = 1; c < chunks; c++) {
+			result[0] += partial[c][0];
+			result[1] += partial[c][1];
+		}
+		return result;
+	}
+	
+	/**
+	 * Runs independent tasks {@code 0} to {@code count - 1}. Tasks run in parallel only if their total
+	 * work reaches the threshold 
+	 * @param count number of tasks 
+	 * @param work total work of the tasks, such as the number of rows they visit 
+	 * @param task task to run for each index 
+	 */
+	public void forEach(int count, long work, IntConsumer task) {
+		if(pool == null || count < 2 || work < THRESHOLD) {
+			for(int i = 0; i < count; i++) task.accept(i);
+		}
+		else pool.invoke(new Tasks(0, count, task));
+	}
+	
+	/**
+	 * Stops workers once running aggregations are done 
+	 */
+	public void shutdown() {
+		if(pool != null) pool.shutdown();
+	}
+	
+	/**
+	 * Tasks of a range of indexes, split in halves down to single tasks 
+	 */
+	private static class Tasks extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		private final int from, to;
+		private final IntConsumer task;
+		
+		Tasks(int from, int to, IntConsumer task) {
+			this.from = from;
+			this.to = to;
+			this.task = task;
+		}
+		
+		@Override
+		protected void compute() {
+			if(to - from == 1) {
+				task.accept(from);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new Tasks(from, middle, task), new Tasks(middle, to, task));
+		}
+	}
+}
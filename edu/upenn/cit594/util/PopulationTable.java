@@ -0,0 +1,158 @@
+package edu.upenn.cit594.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Population data aggregated by zip code once at load. Values of all rows of a zip code are kept in
+ * primitive arrays indexed by the slot of the zip code, so lookups need neither scans nor boxing 
+ * @author andrii podhornyi 
+ *
+ */
+public class PopulationTable {
+
+	private final ZipIndex index;
+	
+	/**
+	 * Per slot: sum of populations of all rows, population of the first row and population of the
+	 * last row with non-zero population (0 if there is none) 
+	 */
+	private final long[] totals;
+	private final int[] first;
+	private final int[] lastNonZero;
+	
+	/**
+	 * Sums of totals of slots lower than each slot, the last entry is the sum of all totals 
+	 */
+	private final long[] prefixTotals;
+	
+	/**
+	 * Sum of populations of all rows 
+	 */
+	private final long totalPopulation;
+	
+	/**
+	 * Populations of rows ordered by slot of their zip code, rows of a slot keep file order 
+	 */
+	private final int[] rows;
+	
+	/**
+	 * Offset of the first row of each slot, the last entry is the number of rows 
+	 */
+	private final int[] offsets;
+	
+	/**
+	 * Aggregates given population rows 
+	 * @param data rows parsed from population file 
+	 */
+	public PopulationTable(List<PopulationData> data) {
+		int[] zips = new int[data.size()];
+		int[] populations = new int[data.size()];
+		int size = 0;
+		for(PopulationData row : data) {
+			zips[size] = row.getZipCode();
+			populations[size++] = row.getPopulation();
+		}
+		
+		index = new ZipIndex(zips, size);
+		totals = new long[index.size()];
+		first = new int[index.size()];
+		lastNonZero = new int[index.size()];
+		boolean[] seen = new boolean[index.size()];
+		long total = 0;
+		for(int i = 0; i < size; i++) {
+			total += populations[i];
+			int slot = index.slotOf(zips[i]);
+			if(slot < 0) continue;
+			totals[slot] += populations[i];
+			if(!seen[slot]) first[slot] = populations[i];
+			seen[slot] = true;
+			if(populations[i] != 0) lastNonZero[slot] = populations[i];
+		}
+		totalPopulation = total;
+		prefixTotals = new long[index.size() + 1];
+		for(int slot = 0; slot < index.size(); slot++) prefixTotals[slot + 1] = prefixTotals[slot] + totals[slot];
+		
+		// counting sort by slot, stable so that each slot keeps file order 
+		offsets = new int[index.size() + 1];
+		for(int i = 0; i < size; i++) {
+			int slot = index.slotOf(zips[i]);
+			if(slot >= 0) offsets[slot + 1]++;
+		}
+		for(int slot = 0; slot < index.size(); slot++) offsets[slot + 1] += offsets[slot];
+		rows = new int[offsets[index.size()]];
+		int[] next = Arrays.copyOf(offsets, index.size());
+		for(int i = 0; i < size; i++) {
+			int slot = index.slotOf(zips[i]);
+			if(slot >= 0) rows[next[slot]++] = populations[i];
+		}
+	}
+	
+	public ZipIndex getIndex() {
+		return index;
+	}
+	
+	/**
+	 * Returns sum of populations of all rows 
+	 */
+	public long getTotalPopulation() {
+		return totalPopulation;
+	}
+	
+	/**
+	 * Returns sum of populations of all rows of given zip code, 0 if there are none 
+	 */
+	public long getTotal(int zipCode) {
+		int slot = index.slotOf(zipCode);
+		return slot < 0 ? 0 : totals[slot];
+	}
+	
+	/**
+	 * Returns sum of populations of all rows of zip codes in given range 
+	 * @param from lowest zip code of the range 
+	 * @param to highest zip code of the range 
+	 * @return sum of populations, 0 if there are no rows in the range 
+	 */
+	public long getTotal(int from, int to) {
+		if(from > to) return 0;
+		return prefixTotals[index.upperBound(to)] - prefixTotals[index.lowerBound(from)];
+	}
+	
+	/**
+	 * Returns the first row of zip codes from given zip code on. Rows of zip code ranges are contiguous,
+	 * rows of a range are {@code firstRow(from)} to {@code endRow(to) - 1} 
+	 */
+	public int firstRow(int zipCode) {
+		return offsets[index.lowerBound(zipCode)];
+	}
+	
+	/**
+	 * Returns the row right after rows of zip codes up to given zip code 
+	 */
+	public int endRow(int zipCode) {
+		return offsets[index.upperBound(zipCode)];
+	}
+	
+	/**
+	 * Returns population of given row 
+	 */
+	public int getPopulation(int row) {
+		return rows[row];
+	}
+	
+	/**
+	 * Returns population of the first row of given zip code, 0 if there are none 
+	 */
+	public int getFirst(int zipCode) {
+		int slot = index.slotOf(zipCode);
+		return slot < 0 ? 0 : first[slot];
+	}
+	
+	/**
+	 * Returns population of the last row of given zip code with non-zero population, 0 if there are none 
+	 */
+	public int getLastNonZero(int zipCode) {
+		int slot = index.slotOf(zipCode);
+		return slot < 0 ? 0 : lastNonZero[slot];
+	}
+}
@@ -0,0 +1,11 @@
+package edu.upenn.cit594.util;
+
+/**
+ * Numeric columns of property data. Per-zip sums and counts of each column are precomputed by
+ * {@code PropertyTable} 
+ * @author andrii podhornyi 
+ *
+ */
+public enum PropertyColumn {
+	MARKET_VALUE, LIVABLE_AREA
+}
@@ -0,0 +1,68 @@
+package edu.upenn.cit594.util;
+
+/**
+ * Forward-only cursor over {@code PropertyRows}. The cursor itself represents the current property,
+ * so a scan creates no objects per property 
+ * @author andrii podhornyi 
+ *
+ */
+public class PropertyCursor implements PropertyRecord {
+
+	private final PropertyRows store;
+	
+	/**
+	 * Index of the current property and index right after the last property of the cursor 
+	 */
+	private int index;
+	private final int end;
+	
+	/**
+	 * Creates cursor over properties {@code from} to {@code to - 1} of the store 
+	 */
+	PropertyCursor(PropertyRows store, int from, int to) {
+		this.store = store;
+		this.index = from - 1;
+		this.end = to;
+	}
+	
+	/**
+	 * Moves to the next property 
+	 * @return true if there is a property, false after the last one 
+	 */
+	public boolean next() {
+		return ++index < end;
+	}
+	
+	@Override
+	public int getZipCode() {
+		return store.getZipCode(index);
+	}
+	
+	/**
+	 * Returns market value of the current property, NaN if it is missing 
+	 */
+	@Override
+	public double marketValue() {
+		return store.getMarketValue(index);
+	}
+	
+	/**
+	 * Returns total livable area of the current property, NaN if it is missing 
+	 */
+	@Override
+	public double totalLivableArea() {
+		return store.getTotalLivableArea(index);
+	}
+	
+	@Override
+	public Double getMarketValue() {
+		double value = marketValue();
+		return Double.isNaN(value) ? null : value;
+	}
+	
+	@Override
+	public Double getTotalLivableArea() {
+		double value = totalLivableArea();
+		return Double.isNaN(value) ? null : value;
+	}
+}
@@ -5,7 +5,7 @@ package edu.upenn.cit594.util;
  * @author andrii podhornyi 
  *
  */
-public class PropertyData {
+public class PropertyData implements PropertyRecord {
 
 	/**
 	 *  5-digit zip code 
@@ -30,14 +30,17 @@ public class PropertyData {
 		this.totalLivableArea = totalLivableArea;
 	}
 
+	@Override
 	public int getZipCode() {
 		return zipCode;
 	}
 
+	@Override
 	public Double getMarketValue() {
 		return marketValue;
 	}
 
+	@Override
 	public Double getTotalLivableArea() {
 		return totalLivableArea;
 	}
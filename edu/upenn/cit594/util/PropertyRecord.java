@@ -0,0 +1,37 @@
+package edu.upenn.cit594.util;
+
+/**
+ * Values of a single property, either as an object or as the current row of a {@code PropertyCursor}
+ * @author andrii podhornyi 
+ *
+ */
+public interface PropertyRecord {
+
+	public int getZipCode();
+
+	/**
+	 * Returns market value, or null if it is missing 
+	 */
+	public Double getMarketValue();
+
+	/**
+	 * Returns total livable area, or null if it is missing 
+	 */
+	public Double getTotalLivableArea();
+
+	/**
+	 * Returns market value, or NaN if it is missing. Rows of columnar stores return it without boxing 
+	 */
+	public default double marketValue() {
+		Double value = getMarketValue();
+		return value == null ? Double.NaN : value;
+	}
+
+	/**
+	 * Returns total livable area, or NaN if it is missing. Rows of columnar stores return it without boxing 
+	 */
+	public default double totalLivableArea() {
+		Double value = getTotalLivableArea();
+		return value == null ? Double.NaN : value;
+	}
+}
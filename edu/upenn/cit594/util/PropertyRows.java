@@ -0,0 +1,25 @@
+package edu.upenn.cit594.util;
+
+/**
+ * Read access to properties stored as columns, either on the heap or in direct buffers. Missing
+ * values are NaN 
+ * @author andrii podhornyi 
+ *
+ */
+public interface PropertyRows {
+	
+	public int size();
+	
+	public int getZipCode(int index);
+	
+	public double getMarketValue(int index);
+	
+	public double getTotalLivableArea(int index);
+	
+	/**
+	 * Returns cursor positioned before the first property 
+	 */
+	public default PropertyCursor cursor() {
+		return new PropertyCursor(this, 0, size());
+	}
+}
@@ -0,0 +1,117 @@
+package edu.upenn.cit594.util;
+
+import java.util.Arrays;
+
+/**
+ * Columnar storage of values retrieved from properties file. Each column is a primitive array,
+ * missing values are stored as NaN. A property takes 20 bytes and scans read contiguous memory
+ * @author andrii podhornyi 
+ *
+ */
+public class PropertyStore implements PropertyRows {
+
+	/**
+	 * Columns of the store, only the first {@code size} entries are used 
+	 */
+	private int[] zipCodes;
+	private double[] marketValues;
+	private double[] livableAreas;
+	private int size;
+	
+	public PropertyStore() {
+		this(16);
+	}
+	
+	/**
+	 * Creates empty store 
+	 * @param capacity expected number of properties 
+	 */
+	public PropertyStore(int capacity) {
+		capacity = Math.max(1, capacity);
+		zipCodes = new int[capacity];
+		marketValues = new double[capacity];
+		livableAreas = new double[capacity];
+	}
+	
+	/**
+	 * Creates store of given columns. Arrays are used as they are and should have the same length 
+	 * @param zipCodes zip codes 
+	 * @param marketValues market values, NaN if missing 
+	 * @param livableAreas total livable areas, NaN if missing 
+	 */
+	public PropertyStore(int[] zipCodes, double[] marketValues, double[] livableAreas) {
+		this.zipCodes = zipCodes;
+		this.marketValues = marketValues;
+		this.livableAreas = livableAreas;
+		this.size = zipCodes.length;
+	}
+	
+	/**
+	 * Adds property to the end of the store 
+	 * @param zipCode 5-digit zip code 
+	 * @param marketValue market value, NaN if missing 
+	 * @param livableArea total livable area, NaN if missing 
+	 */
+	public void add(int zipCode, double marketValue, double livableArea) {
+		if(size == zipCodes.length) grow(size + 1);
+		zipCodes[size] = zipCode;
+		marketValues[size] = marketValue;
+		livableAreas[size] = livableArea;
+		size++;
+	}
+	
+	/**
+	 * Adds all properties of other store to the end of this store 
+	 * @param other store to be copied 
+	 */
+	public void addAll(PropertyStore other) {
+		if(size + other.size > zipCodes.length) grow(size + other.size);
+		System.arraycopy(other.zipCodes, 0, zipCodes, size, other.size);
+		System.arraycopy(other.marketValues, 0, marketValues, size, other.size);
+		System.arraycopy(other.livableAreas, 0, livableAreas, size, other.size);
+		size += other.size;
+	}
+	
+	/**
+	 * Releases unused capacity. Should be called once the store is filled 
+	 */
+	public void trim() {
+		if(size == zipCodes.length) return;
+		zipCodes = Arrays.copyOf(zipCodes, size);
+		marketValues = Arrays.copyOf(marketValues, size);
+		livableAreas = Arrays.copyOf(livableAreas, size);
+	}
+	
+	private void grow(int required) {
+		int capacity = Math.max(required, zipCodes.length * 2);
+		zipCodes = Arrays.copyOf(zipCodes, capacity);
+		marketValues = Arrays.copyOf(marketValues, capacity);
+		livableAreas = Arrays.copyOf(livableAreas, capacity);
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public int getZipCode(int index) {
+		return zipCodes[index];
+	}
+	
+	/**
+	 * Returns market value of given property, NaN if it is missing 
+	 */
+	@Override
+	public double getMarketValue(int index) {
+		return marketValues[index];
+	}
+	
+	/**
+	 * Returns total livable area of given property, NaN if it is missing 
+	 */
+	@Override
+	public double getTotalLivableArea(int index) {
+		return livableAreas[index];
+	}
+}
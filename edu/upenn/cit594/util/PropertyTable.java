@@ -0,0 +1,227 @@
+package edu.upenn.cit594.util;
+
+/**
+ * Property data grouped by zip code once at load. Properties of each zip code are stored next to each
+ * other in file order, and sum and count of valid values of each column are kept per zip code, so
+ * per-zip queries read either a single slot or only the properties of their zip code 
+ * @author andrii podhornyi 
+ *
+ */
+public class PropertyTable {
+
+	private final ZipIndex index;
+	
+	/**
+	 * Properties ordered by slot of their zip code, on the heap or in direct buffers. Properties of a slot
+	 * keep their file order, so sums are accumulated in the same order as by a scan of the file 
+	 */
+	private final PropertyRows rows;
+	
+	/**
+	 * Offset of the first property of each slot, the last entry is the number of properties 
+	 */
+	private final int[] offsets;
+	
+	/**
+	 * Per slot and column: sum and number of values that are not missing 
+	 */
+	private final double[][] sums;
+	private final int[][] counts;
+	
+	/**
+	 * Per column: sums and counts of slots lower than each slot, the last entry covers all slots 
+	 */
+	private final double[][] prefixSums;
+	private final int[][] prefixCounts;
+	
+	/**
+	 * Groups given properties by zip code on the heap 
+	 * @param data properties parsed from properties file 
+	 */
+	public PropertyTable(PropertyStore data) {
+		this(data, false);
+	}
+	
+	/**
+	 * Groups given properties by zip code 
+	 * @param data properties parsed from properties file 
+	 * @param offHeap true if grouped properties are kept in direct buffers outside of the heap 
+	 */
+	public PropertyTable(PropertyStore data, boolean offHeap) {
+		this(data, offHeap, new ParallelAggregator(1));
+	}
+	
+	/**
+	 * Groups given properties by zip code. Aggregates of zip codes are computed in parallel on given
+	 * aggregator, each by a single worker, so they do not depend on the number of threads 
+	 * @param data properties parsed from properties file 
+	 * @param offHeap true if grouped properties are kept in direct buffers outside of the heap 
+	 * @param aggregator aggregator to compute aggregates on 
+	 */
+	public PropertyTable(PropertyStore data, boolean offHeap, ParallelAggregator aggregator) {
+		int size = data.size();
+		int[] zips = new int[size];
+		for(int i = 0; i < size; i++) zips[i] = data.getZipCode(i);
+		index = new ZipIndex(zips, size);
+		
+		// counting sort by slot, stable so that each slot keeps file order 
+		offsets = new int[index.size() + 1];
+		for(int i = 0; i < size; i++) {
+			int slot = index.slotOf(zips[i]);
+			if(slot >= 0) offsets[slot + 1]++;
+		}
+		for(int slot = 0; slot < index.size(); slot++) offsets[slot + 1] += offsets[slot];
+		
+		// order[row] is the index of the property that takes the row 
+		int rowCount = offsets[index.size()];
+		int[] order = new int[rowCount];
+		int[] next = new int[index.size()];
+		System.arraycopy(offsets, 0, next, 0, index.size());
+		for(int i = 0; i < size; i++) {
+			int slot = index.slotOf(zips[i]);
+			if(slot >= 0) order[next[slot]++] = i;
+		}
+		rows = offHeap ? groupOffHeap(data, order) : group(data, order);
+		
+		PropertyColumn[] columns = PropertyColumn.values();
+		sums = new double[columns.length][index.size()];
+		counts = new int[columns.length][index.size()];
+		aggregator.forEach(index.size(), rowCount, slot -> {
+			for(int row = offsets[slot]; row < offsets[slot + 1]; row++) {
+				for(PropertyColumn column : columns) {
+					double value = getValue(row, column);
+					if(Double.isNaN(value)) continue;
+					sums[column.ordinal()][slot] += value;
+					counts[column.ordinal()][slot]++;
+				}
+			}
+		});
+		
+		prefixSums = new double[columns.length][index.size() + 1];
+		prefixCounts = new int[columns.length][index.size() + 1];
+		for(PropertyColumn column : columns) {
+			int c = column.ordinal();
+			for(int slot = 0; slot < index.size(); slot++) {
+				prefixSums[c][slot + 1] = prefixSums[c][slot] + sums[c][slot];
+				prefixCounts[c][slot + 1] = prefixCounts[c][slot] + counts[c][slot];
+			}
+		}
+	}
+	
+	private static PropertyStore group(PropertyStore data, int[] order) {
+		int[] zips = new int[order.length];
+		double[] marketValues = new double[order.length];
+		double[] livableAreas = new double[order.length];
+		for(int row = 0; row < order.length; row++) {
+			zips[row] = data.getZipCode(order[row]);
+			marketValues[row] = data.getMarketValue(order[row]);
+			livableAreas[row] = data.getTotalLivableArea(order[row]);
+		}
+		return new PropertyStore(zips, marketValues, livableAreas);
+	}
+	
+	private static OffHeapPropertyStore groupOffHeap(PropertyStore data, int[] order) {
+		OffHeapPropertyStore rows = new OffHeapPropertyStore(order.length);
+		for(int i : order) rows.add(data.getZipCode(i), data.getMarketValue(i), data.getTotalLivableArea(i));
+		return rows;
+	}
+	
+	private double getValue(int row, PropertyColumn column) {
+		return column == PropertyColumn.MARKET_VALUE ? rows.getMarketValue(row) : rows.getTotalLivableArea(row);
+	}
+	
+	public ZipIndex getIndex() {
+		return index;
+	}
+	
+	/**
+	 * Returns number of properties 
+	 */
+	public int size() {
+		return rows.size();
+	}
+	
+	/**
+	 * Returns sum of values of given column over properties of given zip code, 0 if there are none 
+	 */
+	public double getSum(int zipCode, PropertyColumn column) {
+		int slot = index.slotOf(zipCode);
+		return slot < 0 ? 0 : sums[column.ordinal()][slot];
+	}
+	
+	/**
+	 * Returns number of properties of given zip code that have a value in given column 
+	 */
+	public int getCount(int zipCode, PropertyColumn column) {
+		int slot = index.slotOf(zipCode);
+		return slot < 0 ? 0 : counts[column.ordinal()][slot];
+	}
+	
+	/**
+	 * Returns sum of values of given column over properties of zip codes in given range 
+	 * @param from lowest zip code of the range 
+	 * @param to highest zip code of the range 
+	 * @param column column to sum 
+	 * @return sum of values that are not missing, 0 if there are none 
+	 */
+	public double getSum(int from, int to, PropertyColumn column) {
+		if(from > to) return 0;
+		double[] prefix = prefixSums[column.ordinal()];
+		return prefix[index.upperBound(to)] - prefix[index.lowerBound(from)];
+	}
+	
+	/**
+	 * Returns number of properties of zip codes in given range that have a value in given column 
+	 */
+	public int getCount(int from, int to, PropertyColumn column) {
+		if(from > to) return 0;
+		int[] prefix = prefixCounts[column.ordinal()];
+		return prefix[index.upperBound(to)] - prefix[index.lowerBound(from)];
+	}
+	
+	/**
+	 * Returns the first row of properties of zip codes from given zip code on. Rows of zip code ranges
+	 * are contiguous, properties of a range take rows {@code firstRow(from)} to {@code endRow(to) - 1} 
+	 */
+	public int firstRow(int zipCode) {
+		return offsets[index.lowerBound(zipCode)];
+	}
+	
+	/**
+	 * Returns the row right after properties of zip codes up to given zip code 
+	 */
+	public int endRow(int zipCode) {
+		return offsets[index.upperBound(zipCode)];
+	}
+	
+	/**
+	 * Returns cursor over rows {@code from} to {@code to - 1} 
+	 */
+	public PropertyCursor rowCursor(int from, int to) {
+		return new PropertyCursor(rows, from, Math.max(from, to));
+	}
+	
+	/**
+	 * Returns cursor over properties of given zip code in file order 
+	 */
+	public PropertyCursor cursor(int zipCode) {
+		int slot = index.slotOf(zipCode);
+		if(slot < 0) return new PropertyCursor(rows, 0, 0);
+		return new PropertyCursor(rows, offsets[slot], offsets[slot + 1]);
+	}
+	
+	/**
+	 * Returns cursor over properties of zip codes in given range, grouped by zip code 
+	 */
+	public PropertyCursor cursor(int from, int to) {
+		if(from > to) return new PropertyCursor(rows, 0, 0);
+		return new PropertyCursor(rows, offsets[index.lowerBound(from)], offsets[index.upperBound(to)]);
+	}
+	
+	/**
+	 * Returns cursor over all properties, grouped by zip code 
+	 */
+	public PropertyCursor cursor() {
+		return rows.cursor();
+	}
+}
@@ -1,41 +1,80 @@
 package edu.upenn.cit594.util;
 
+import java.util.List;
 import java.util.TreeMap;
 
+import edu.upenn.cit594.datamanagement.ResultCache;
 import edu.upenn.cit594.datamanagement.ResultHolder;
 
 /**
  * Util class for ResultHolder classes storage
- * Implements memoization techniques 
+ * Implements memoization techniques, safe to share between threads. All holders share one
+ * {@code ResultCache}, so results of all requests are kept within a single memory budget 
  * @author andrii podhornyi 
  *
  */
 public class UserRequestResults {
 	
+	/**
+	 * Estimated size of a boxed result with its key and map entries 
+	 */
+	private static final long SCALAR_WEIGHT = 64;
+	
+	/**
+	 * Estimated size of a tree map node with boxed zip code and rate 
+	 */
+	private static final long NODE_WEIGHT = 80;
+	
+	/**
+	 * Memory budget of all results 
+	 */
+	public final ResultCache cache = new ResultCache();
 	
 	/**
 	 * Storage for the user's requests of partial and full vaccinations per capita 
 	 * @author Adam Hebert 
 	 */
-	public ResultHolder<String, TreeMap<Integer, Double>> getPartialOrFullVaccinationsPerCapita = new ResultHolder<>();
+	public final ResultHolder<String, TreeMap<Integer, Double>> getPartialOrFullVaccinationsPerCapita =
+			new ResultHolder<>(cache, result -> SCALAR_WEIGHT + NODE_WEIGHT * result.size());
+	
+	/**
+	 * Storage for the total population of all zip codes, under a single key 
+	 */
+	public final ResultHolder<String, Long> getTotalPopulation = new ResultHolder<>(cache, result -> SCALAR_WEIGHT);
 	
 	/**
 	 * Storage for the user's requests of average market value 
 	 */
-	public ResultHolder<Integer, Long> getAverageMarketValue = new ResultHolder<>();
+	public final ResultHolder<Integer, Long> getAverageMarketValue = new ResultHolder<>(cache, result -> SCALAR_WEIGHT);
 	
 	/**
 	 * Storage for the user's requests of average total livable area  
 	 */
-	public ResultHolder<Integer, Long> getAverageLivableArea = new ResultHolder<>();
+	public final ResultHolder<Integer, Long> getAverageLivableArea = new ResultHolder<>(cache, result -> SCALAR_WEIGHT);
 	
 	/**
 	 * Storage for the user's requests of total market value per capita 
 	 */
-	public ResultHolder<Integer, Long> getTotalMarketValue = new ResultHolder<>();
+	public final ResultHolder<Integer, Long> getTotalMarketValue = new ResultHolder<>(cache, result -> SCALAR_WEIGHT);
 	
 	/**
 	 * Storage for free activity task
 	 */
-	public ResultHolder<String, Long> getlivableSpacePerUnvaccinatedPerson = new ResultHolder<>();
-}
\ No newline at end of file
+	public final ResultHolder<String, Long> getlivableSpacePerUnvaccinatedPerson = new ResultHolder<>(cache, result -> SCALAR_WEIGHT);
+	
+	/**
+	 * Returns hit, miss and eviction counters of all holders together with the size of kept results 
+	 */
+	public String getStatistics() {
+		List<ResultHolder<?, ?>> holders = List.of(getPartialOrFullVaccinationsPerCapita, getTotalPopulation, getAverageMarketValue,
+				getAverageLivableArea, getTotalMarketValue, getlivableSpacePerUnvaccinatedPerson);
+		long hits = 0, misses = 0, evictions = 0;
+		for(ResultHolder<?, ?> holder : holders) {
+			hits += holder.getHits();
+			misses += holder.getMisses();
+			evictions += holder.getEvictions();
+		}
+		return "result cache: " + hits + " hits, " + misses + " misses, " + evictions + " evictions, "
+				+ cache.getWeight() + " bytes";
+	}
+}
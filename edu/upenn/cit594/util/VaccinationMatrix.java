@@ -0,0 +1,194 @@
+package edu.upenn.cit594.util;
+
+import java.util.Arrays;
+
+/**
+ * Covid data arranged as a dense matrix of dates and zip codes. Each cell holds the counts of the last
+ * record of its date and zip code with non-zero count, 0 if there is none, which is the value a scan of
+ * the records in file order ends with. Cells of a date are stored next to each other in zip code order,
+ * so a query of all zip codes for a date reads one contiguous row 
+ * @author andrii podhornyi 
+ *
+ */
+public class VaccinationMatrix {
+
+	private ZipIndex index;
+	
+	/**
+	 * Distinct date keys in ascending order, the position of a key is the row of its date 
+	 */
+	private int[] dates;
+	
+	/**
+	 * Cells of partially and fully vaccinated counts, row by row 
+	 */
+	private int[] partiallyVaccinated;
+	private int[] fullyVaccinated;
+	
+	/**
+	 * Per-zip series of partially and fully vaccinated counts, built on first use and dropped when
+	 * records are added 
+	 */
+	private VaccinationSeries partialSeries;
+	private VaccinationSeries fullSeries;
+	
+	/**
+	 * Builds matrix of given records in one pass 
+	 * @param data records parsed from covid file 
+	 */
+	public VaccinationMatrix(CovidStore data) {
+		index = new ZipIndex(zipCodes(data), data.size());
+		dates = distinctDates(data, new int[0]);
+		partiallyVaccinated = new int[cells(dates.length, index.size())];
+		fullyVaccinated = new int[partiallyVaccinated.length];
+		apply(data);
+	}
+	
+	/**
+	 * Merges records that follow the records of the matrix. The matrix grows if records have new
+	 * dates or zip codes 
+	 * @param data records appended to covid file 
+	 */
+	public void addAll(CovidStore data) {
+		if(!covers(data)) grow(data);
+		apply(data);
+		synchronized(this) {
+			partialSeries = fullSeries = null;
+		}
+	}
+	
+	/**
+	 * Writes non-zero counts of records into their cells, later records override earlier ones 
+	 */
+	private void apply(CovidStore data) {
+		int width = index.size();
+		for(int i = 0; i < data.size(); i++) {
+			int slot = index.slotOf(data.getZipCode(i));
+			if(slot < 0) continue;
+			int cell = Arrays.binarySearch(dates, data.getDate(i)) * width + slot;
+			if(data.getPartiallyVaccinated(i) != 0) partiallyVaccinated[cell] = data.getPartiallyVaccinated(i);
+			if(data.getFullyVaccinated(i) != 0) fullyVaccinated[cell] = data.getFullyVaccinated(i);
+		}
+	}
+	
+	/**
+	 * Checks if the matrix has rows and columns for all records 
+	 */
+	private boolean covers(CovidStore data) {
+		for(int i = 0; i < data.size(); i++) {
+			if(index.slotOf(data.getZipCode(i)) < 0) return false;
+			if(Arrays.binarySearch(dates, data.getDate(i)) < 0) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Rebuilds the matrix with dates and zip codes of given records added and copies existing cells 
+	 */
+	private void grow(CovidStore data) {
+		int[] zips = Arrays.copyOf(zipCodes(data), data.size() + index.size());
+		for(int slot = 0; slot < index.size(); slot++) zips[data.size() + slot] = index.getZipCode(slot);
+		ZipIndex grownIndex = new ZipIndex(zips, zips.length);
+		int[] grownDates = distinctDates(data, dates);
+		int[] grownPartial = new int[cells(grownDates.length, grownIndex.size())];
+		int[] grownFull = new int[grownPartial.length];
+		
+		// old slots and rows keep their order, only their positions move 
+		int[] slots = new int[index.size()];
+		for(int slot = 0; slot < index.size(); slot++) slots[slot] = grownIndex.slotOf(index.getZipCode(slot));
+		for(int row = 0; row < dates.length; row++) {
+			int grownRow = Arrays.binarySearch(grownDates, dates[row]);
+			for(int slot = 0; slot < index.size(); slot++) {
+				int cell = row * index.size() + slot, grownCell = grownRow * grownIndex.size() + slots[slot];
+				grownPartial[grownCell] = partiallyVaccinated[cell];
+				grownFull[grownCell] = fullyVaccinated[cell];
+			}
+		}
+		index = grownIndex;
+		dates = grownDates;
+		partiallyVaccinated = grownPartial;
+		fullyVaccinated = grownFull;
+	}
+	
+	private static int[] zipCodes(CovidStore data) {
+		int[] zips = new int[data.size()];
+		for(int i = 0; i < zips.length; i++) zips[i] = data.getZipCode(i);
+		return zips;
+	}
+	
+	/**
+	 * Returns sorted distinct date keys of given records and given keys 
+	 */
+	private static int[] distinctDates(CovidStore data, int[] known) {
+		int[] keys = Arrays.copyOf(known, known.length + data.size());
+		for(int i = 0; i < data.size(); i++) keys[known.length + i] = data.getDate(i);
+		Arrays.sort(keys);
+		int count = 0;
+		for(int i = 0; i < keys.length; i++) {
+			if(count == 0 || keys[i] != keys[count - 1]) keys[count++] = keys[i];
+		}
+		return Arrays.copyOf(keys, count);
+	}
+	
+	private static int cells(int rows, int columns) {
+		return Math.multiplyExact(rows, columns);
+	}
+	
+	public ZipIndex getIndex() {
+		return index;
+	}
+	
+	/**
+	 * Returns keys of all dates of the matrix in ascending order 
+	 */
+	public int[] getDates() {
+		return dates.clone();
+	}
+	
+	/**
+	 * Returns series of partially or fully vaccinated counts of each zip code. Series are built once
+	 * even if several readers ask for them at the same time 
+	 * @param partial true for partially vaccinated persons, false for fully vaccinated ones 
+	 */
+	public synchronized VaccinationSeries getSeries(boolean partial) {
+		if(partial) {
+			if(partialSeries == null) partialSeries = new VaccinationSeries(this, true, dates);
+			return partialSeries;
+		}
+		if(fullSeries == null) fullSeries = new VaccinationSeries(this, false, dates);
+		return fullSeries;
+	}
+	
+	/**
+	 * Returns row of given date 
+	 * @param dateKey key of the date 
+	 * @return row of the date, -1 if there are no records of the date 
+	 */
+	public int rowOf(int dateKey) {
+		int row = Arrays.binarySearch(dates, dateKey);
+		return row < 0 ? -1 : row;
+	}
+	
+	/**
+	 * Returns number of partially or fully vaccinated persons in given cell 
+	 * @param partial true for partially vaccinated persons, false for fully vaccinated ones 
+	 * @param row row of the date 
+	 * @param slot slot of the zip code 
+	 * @return last non-zero count of the cell, 0 if there is none 
+	 */
+	public int getCell(boolean partial, int row, int slot) {
+		return (partial ? partiallyVaccinated : fullyVaccinated)[row * index.size() + slot];
+	}
+	
+	/**
+	 * Returns number of partially or fully vaccinated persons for given zip code and date 
+	 * @param partial true for partially vaccinated persons, false for fully vaccinated ones 
+	 * @param zipCode 5-digit zip code 
+	 * @param dateKey key of the date 
+	 * @return last non-zero count, 0 if there is none 
+	 */
+	public int getCount(boolean partial, int zipCode, int dateKey) {
+		int row = rowOf(dateKey), slot = index.slotOf(zipCode);
+		return row < 0 || slot < 0 ? 0 : getCell(partial, row, slot);
+	}
+}
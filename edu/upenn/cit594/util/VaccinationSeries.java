@@ -0,0 +1,91 @@
+package edu.upenn.cit594.util;
+
+import java.util.Arrays;
+
+/**
+ * Partially or fully vaccinated counts of each zip code over time. Dates of a zip code with non-zero
+ * count are stored next to each other in ascending order, so a date window of a zip code is found by
+ * two binary searches and read as a contiguous range 
+ * @author andrii podhornyi 
+ *
+ */
+public class VaccinationSeries {
+
+	/**
+	 * Offset of the first entry of each slot, the last entry is the number of entries 
+	 */
+	private final int[] offsets;
+	
+	/**
+	 * Date keys and counts of entries, slot by slot 
+	 */
+	private final int[] dates;
+	private final int[] counts;
+	
+	/**
+	 * Builds series of each zip code from the cells of given matrix 
+	 * @param matrix covid data 
+	 * @param partial true for partially vaccinated counts, false for fully vaccinated ones 
+	 * @param dateKeys keys of the dates of the rows of the matrix 
+	 */
+	VaccinationSeries(VaccinationMatrix matrix, boolean partial, int[] dateKeys) {
+		int width = matrix.getIndex().size();
+		offsets = new int[width + 1];
+		for(int slot = 0; slot < width; slot++) {
+			int entries = 0;
+			for(int row = 0; row < dateKeys.length; row++) {
+				if(matrix.getCell(partial, row, slot) != 0) entries++;
+			}
+			offsets[slot + 1] = offsets[slot] + entries;
+		}
+		dates = new int[offsets[width]];
+		counts = new int[offsets[width]];
+		for(int slot = 0; slot < width; slot++) {
+			int entry = offsets[slot];
+			for(int row = 0; row < dateKeys.length; row++) {
+				int count = matrix.getCell(partial, row, slot);
+				if(count == 0) continue;
+				dates[entry] = dateKeys[row];
+				counts[entry++] = count;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the first entry of given slot with date on or after given date 
+	 */
+	public int lowerBound(int slot, int dateKey) {
+		int position = Arrays.binarySearch(dates, offsets[slot], offsets[slot + 1], dateKey);
+		return position >= 0 ? position : -position - 1;
+	}
+	
+	/**
+	 * Returns the entry right after the last entry of given slot with date on or before given date 
+	 */
+	public int upperBound(int slot, int dateKey) {
+		int position = Arrays.binarySearch(dates, offsets[slot], offsets[slot + 1], dateKey);
+		return position >= 0 ? position + 1 : -position - 1;
+	}
+	
+	/**
+	 * Returns the last non-zero count of given slot on or before given date 
+	 * @param slot slot of the zip code 
+	 * @param dateKey key of the date 
+	 * @return count, 0 if there are no counts up to the date 
+	 */
+	public int getLatest(int slot, int dateKey) {
+		int entry = upperBound(slot, dateKey);
+		return entry == offsets[slot] ? 0 : counts[entry - 1];
+	}
+	
+	/**
+	 * Returns key of the date of given entry 
+	 */
+	public int getDate(int entry) {
+		return dates[entry];
+	}
+	
+	public int getCount(int entry) {
+		return counts[entry];
+	}
+}
@@ -0,0 +1,113 @@
+package edu.upenn.cit594.util;
+
+import java.util.Arrays;
+
+/**
+ * Maps 5-digit zip codes of a data set to dense slots 0..size-1. Slots follow the order of zip codes,
+ * so per-zip values can be kept in primitive arrays indexed by slot and scanned in zip order.
+ * Lookup is a single array access over all 100000 possible zip codes 
+ * @author andrii podhornyi 
+ *
+ */
+public class ZipIndex {
+
+	/**
+	 * Number of possible 5-digit zip codes 
+	 */
+	public static final int ZIP_CODES = 100000;
+	
+	/**
+	 * Slot of each possible zip code, -1 for zip codes that are not in the data set 
+	 */
+	private final int[] slots = new int[ZIP_CODES];
+	
+	/**
+	 * Zip code of each slot in ascending order 
+	 */
+	private final int[] zipCodes;
+	
+	/**
+	 * Builds index of distinct zip codes in given column 
+	 * @param column zip codes of a data set, may contain duplicates 
+	 * @param size number of used entries of the column 
+	 */
+	public ZipIndex(int[] column, int size) {
+		Arrays.fill(slots, -1);
+		for(int i = 0; i < size; i++) {
+			if(isZipCode(column[i])) slots[column[i]] = 0;
+		}
+		int count = 0;
+		for(int zip = 0; zip < ZIP_CODES; zip++) {
+			if(slots[zip] == 0) slots[zip] = count++;
+		}
+		zipCodes = new int[count];
+		for(int zip = 0; zip < ZIP_CODES; zip++) {
+			if(slots[zip] >= 0) zipCodes[slots[zip]] = zip;
+		}
+	}
+	
+	private static boolean isZipCode(int zip) {
+		return zip >= 0 && zip < ZIP_CODES;
+	}
+	
+	/**
+	 * Returns slot of given zip code 
+	 * @param zip zip code to search for 
+	 * @return slot of the zip code, -1 if it is not in the data set 
+	 */
+	public int slotOf(int zip) {
+		return isZipCode(zip) ? slots[zip] : -1;
+	}
+	
+	/**
+	 * Returns number of zip codes lower than given zip code, which is the first slot of a range starting
+	 * at that zip code 
+	 */
+	public int lowerBound(int zip) {
+		int position = Arrays.binarySearch(zipCodes, zip);
+		return position >= 0 ? position : -position - 1;
+	}
+	
+	/**
+	 * Returns number of zip codes lower than or equal to given zip code, which is the slot right after
+	 * a range ending at that zip code 
+	 */
+	public int upperBound(int zip) {
+		int position = Arrays.binarySearch(zipCodes, zip);
+		return position >= 0 ? position + 1 : -position - 1;
+	}
+	
+	/**
+	 * Returns the lowest zip code starting with given digits 
+	 * @param prefix 1 to 5 digits 
+	 */
+	public static int prefixStart(String prefix) {
+		int zip = Integer.parseInt(prefix);
+		for(int i = prefix.length(); i < 5; i++) zip *= 10;
+		return zip;
+	}
+	
+	/**
+	 * Returns the highest zip code starting with given digits 
+	 * @param prefix 1 to 5 digits 
+	 */
+	public static int prefixEnd(String prefix) {
+		int zip = Integer.parseInt(prefix);
+		for(int i = prefix.length(); i < 5; i++) zip = zip * 10 + 9;
+		return zip;
+	}
+	
+	/**
+	 * Returns zip code of given slot 
+	 */
+	public int getZipCode(int slot) {
+		return zipCodes[slot];
+	}
+	
+	/**
+	 * Returns number of distinct zip codes 
+	 */
+	public int size() {
+		return zipCodes.length;
+	}
+}